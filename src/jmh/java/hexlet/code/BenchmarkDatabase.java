@@ -0,0 +1,46 @@
+package hexlet.code;
+
+import io.ebean.Database;
+import io.ebean.DatabaseFactory;
+import io.ebean.config.DatabaseConfig;
+import io.ebean.datasource.DataSourceConfig;
+
+/**
+ * In-memory H2 database seeded with 100k urls and 1M checks, shared by all benchmarks of a fork,
+ * or an empty one for benchmarks that bring their own rows.
+ */
+public final class BenchmarkDatabase {
+
+    private static Database database;
+
+    private BenchmarkDatabase() {
+    }
+
+    public static Database start() {
+        return start("seed-bench-db.sql");
+    }
+
+    public static Database startEmpty() {
+        return start(null);
+    }
+
+    private static synchronized Database start(String seedSql) {
+        if (database == null) {
+            DataSourceConfig dataSource = new DataSourceConfig();
+            dataSource.setUrl("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1");
+            dataSource.setUsername("sa");
+            dataSource.setPassword("sa");
+
+            DatabaseConfig config = new DatabaseConfig();
+            config.setName("bench");
+            config.setDataSourceConfig(dataSource);
+            config.setDefaultServer(true);
+            config.setRunMigration(false);
+            config.setDdlGenerate(true);
+            config.setDdlRun(true);
+            config.setDdlSeedSql(seedSql);
+            database = DatabaseFactory.create(config);
+        }
+        return database;
+    }
+}
@@ -0,0 +1,133 @@
+package hexlet.code;
+
+import hexlet.code.controllers.KeysetPage;
+import hexlet.code.controllers.UrlQueries;
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.UrlCheckSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the url list and url page, both with their row fragments rendered per request
+ * and with the fragments taken from the page cache, using the production template engine.
+ * The streaming variant writes to a writer instead of building the page as a string; the gc
+ * profiler reports the allocation rate of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TemplateBenchmark {
+
+    private static final long BUSY_URL = 500;
+
+    private TemplateEngine templateEngine;
+
+    private KeysetPage<Url> urls;
+
+    private Url url;
+
+    private KeysetPage<UrlCheck> urlChecks;
+
+    private List<UrlCheckSummary> summaries;
+
+    private String urlRows;
+
+    private String checkRows;
+
+    private String summaryTable;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase.start();
+        templateEngine = App.getTemplateEngine(true);
+
+        urls = UrlQueries.firstPage();
+        url = UrlQueries.url(BUSY_URL);
+        urlChecks = UrlQueries.latestChecks(BUSY_URL);
+        summaries = UrlQueries.summaries(BUSY_URL);
+
+        urlRows = renderUrlRows();
+        checkRows = renderCheckRows();
+        summaryTable = renderSummaryTable();
+    }
+
+    @Benchmark
+    public String renderIndex() {
+        return renderIndexPage(renderUrlRows());
+    }
+
+    @Benchmark
+    public String renderIndexWithCachedRows() {
+        return renderIndexPage(urlRows);
+    }
+
+    @Benchmark
+    public Writer streamIndexWithCachedRows() {
+        Writer writer = Writer.nullWriter();
+        templateEngine.process("urls/index.html", indexContext(urlRows), writer);
+        return writer;
+    }
+
+    @Benchmark
+    public String renderShow() {
+        return renderShowPage(renderCheckRows(), renderSummaryTable());
+    }
+
+    @Benchmark
+    public String renderShowWithCachedRows() {
+        return renderShowPage(checkRows, summaryTable);
+    }
+
+    private String renderIndexPage(String rows) {
+        return templateEngine.process("urls/index.html", indexContext(rows));
+    }
+
+    private Context indexContext(String rows) {
+        Context context = new Context(Locale.getDefault());
+        context.setVariable("urls", urls);
+        context.setVariable("urlRows", rows);
+        context.setVariable("totalUrls", 100_000);
+        context.setVariable("sweepRunning", false);
+        // The layout reads the flash message from the session, which a plain context does not have.
+        context.setVariable("session", Map.of());
+        return context;
+    }
+
+    private String renderShowPage(String rows, String summaryHtml) {
+        Context context = new Context(Locale.getDefault());
+        context.setVariable("url", url);
+        context.setVariable("urlChecks", urlChecks);
+        context.setVariable("checkRows", rows);
+        context.setVariable("summaryTable", summaryHtml);
+        context.setVariable("session", Map.of());
+        return templateEngine.process("urls/show.html", context);
+    }
+
+    private String renderUrlRows() {
+        return templateEngine.process("urls/rows.html", new Context(Locale.getDefault(), Map.of("urls", urls)));
+    }
+
+    private String renderCheckRows() {
+        return templateEngine.process("urls/checks.html",
+                new Context(Locale.getDefault(), Map.of("urlChecks", urlChecks)));
+    }
+
+    private String renderSummaryTable() {
+        return templateEngine.process("urls/summaries.html",
+                new Context(Locale.getDefault(), Map.of("summaries", summaries)));
+    }
+}
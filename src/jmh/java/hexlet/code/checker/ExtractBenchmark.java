@@ -0,0 +1,68 @@
+package hexlet.code.checker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Title, h1 and description extraction on the kinds of pages a check runs into.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExtractBenchmark {
+
+    private static final int LARGE_PAGE_BYTES = 2 * 1024 * 1024;
+
+    @Param({"small", "large", "h1AtEnd", "unclosedComment", "hugeAttribute", "deepNesting"})
+    private String page;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = page(page).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ExtractedPage extract() throws IOException {
+        return HtmlHeadExtractor.extract(new ByteArrayInputStream(body), "text/html; charset=utf-8");
+    }
+
+    private static String page(String kind) {
+        String head = "<!DOCTYPE html><html><head><meta charset=\"utf-8\">"
+                + "<meta name=\"description\" content=\"Shop &amp; news\"><title>Example store</title>"
+                + "<script>var a = '<h1>not a heading</h1>';</script></head><body>";
+        switch (kind) {
+            case "small":
+                return head + "<h1>Welcome</h1><p>Hello</p></body></html>";
+            case "large":
+                return head + "<h1>Welcome</h1>" + filler(LARGE_PAGE_BYTES) + "</body></html>";
+            case "h1AtEnd":
+                return head + filler(LARGE_PAGE_BYTES) + "<h1>Welcome</h1></body></html>";
+            case "unclosedComment":
+                return head + "<!-- " + filler(LARGE_PAGE_BYTES);
+            case "hugeAttribute":
+                return head + "<div data-x=\"" + "x".repeat(LARGE_PAGE_BYTES) + "\"><h1>Welcome</h1></div>";
+            case "deepNesting":
+                return head + "<div>".repeat(100_000) + "<h1>Welcome</h1>" + "</div>".repeat(100_000);
+            default:
+                throw new IllegalArgumentException(kind);
+        }
+    }
+
+    private static String filler(int bytes) {
+        String paragraph = "<p class=\"text\">Lorem ipsum dolor sit amet, <a href=\"/x\">consectetur</a>.</p>\n";
+        return paragraph.repeat(bytes / paragraph.length());
+    }
+}
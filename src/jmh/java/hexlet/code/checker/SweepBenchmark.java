@@ -0,0 +1,103 @@
+package hexlet.code.checker;
+
+import hexlet.code.BenchmarkDatabase;
+import hexlet.code.domain.Url;
+import io.ebean.DB;
+import io.ebean.Transaction;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full sweep of 1000 urls on 250 local hosts, each served by a MockWebServer bound to every
+ * loopback address. The first {@code slowHosts} hosts answer in 200 ms and the others in 5 ms,
+ * so a sweep that waits on a busy host instead of moving on shows up as a longer run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SweepBenchmark {
+
+    private static final int HOSTS = 250;
+
+    private static final int SERVERS = 4;
+
+    private static final long FAST_MILLIS = 5;
+
+    private static final long SLOW_MILLIS = 200;
+
+    @Param({"0", "10"})
+    private int slowHosts;
+
+    private final List<MockWebServer> servers = new ArrayList<>();
+
+    private CheckerHttpClient httpClient;
+
+    private CheckSweeper sweeper;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDatabase.startEmpty();
+        Dispatcher dispatcher = new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String host = String.valueOf(request.getRequestUrl().host());
+                int index = Integer.parseInt(host.substring(host.lastIndexOf('.') + 1));
+                return new MockResponse()
+                        .setBody("<html><head><title>" + host + "</title></head><body><h1>Hi</h1></body></html>")
+                        .setHeadersDelay(index <= slowHosts ? SLOW_MILLIS : FAST_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        };
+        for (int i = 0; i < SERVERS; i++) {
+            MockWebServer server = new MockWebServer();
+            server.setDispatcher(dispatcher);
+            server.start(InetAddress.getByName("0.0.0.0"), 0);
+            servers.add(server);
+        }
+
+        try (Transaction transaction = DB.beginTransaction()) {
+            transaction.setBatchMode(true);
+            for (int host = 1; host <= HOSTS; host++) {
+                for (MockWebServer server : servers) {
+                    String name = "http://127.0.0." + host + ":" + server.getPort();
+                    new Url(name, name).insert();
+                }
+            }
+            transaction.commit();
+        }
+
+        httpClient = new CheckerHttpClient(new CheckerHttpClient.Settings().maxConnections(500));
+        sweeper = new CheckSweeper(new UrlChecker(new CheckStore(id -> { }), httpClient), 64, 2, 100);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sweeper.shutdown();
+        httpClient.shutdown();
+        for (MockWebServer server : servers) {
+            server.shutdown();
+        }
+    }
+
+    @Benchmark
+    public SweepReport sweep() throws InterruptedException, ExecutionException {
+        return sweeper.sweep();
+    }
+}
@@ -0,0 +1,73 @@
+package hexlet.code.controllers;
+
+import hexlet.code.BenchmarkDatabase;
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.UrlCheckSummary;
+import hexlet.code.domain.query.QUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The queries behind the url list, url search and url page, against 100k urls and 1M checks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark {
+
+    private static final long LAST_PAGE = 99_990;
+
+    private static final long BUSY_URL = 500;
+
+    private final UrlSearch urlSearch = new UrlSearch(false);
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase.start();
+    }
+
+    @Benchmark
+    public KeysetPage<Url> listFirstPage() {
+        return UrlController.findUrls(null, null);
+    }
+
+    @Benchmark
+    public KeysetPage<Url> listDeepPage() {
+        return UrlController.findUrls(LAST_PAGE, null);
+    }
+
+    @Benchmark
+    public void showUrl(Blackhole blackhole) {
+        Url url = new QUrl().id.equalTo(BUSY_URL).findOne();
+        KeysetPage<UrlCheck> urlChecks = UrlController.findChecks(BUSY_URL, null, null);
+        List<UrlCheckSummary> summaries = UrlController.findSummaries(BUSY_URL);
+        blackhole.consume(url);
+        blackhole.consume(urlChecks);
+        blackhole.consume(summaries);
+    }
+
+    @Benchmark
+    public KeysetPage<UrlCheck> olderChecks() {
+        return UrlController.findChecks(BUSY_URL, null, 500_000L);
+    }
+
+    @Benchmark
+    public KeysetPage<Url> searchHostPrefix() {
+        return urlSearch.find(BenchmarkDatabase.start(), "site4242", null, null, 10);
+    }
+
+    @Benchmark
+    public KeysetPage<Url> searchTitleWords() {
+        return urlSearch.find(BenchmarkDatabase.start(), "site 4242", null, null, 10);
+    }
+}
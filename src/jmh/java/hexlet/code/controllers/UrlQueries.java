@@ -0,0 +1,33 @@
+package hexlet.code.controllers;
+
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.UrlCheckSummary;
+import hexlet.code.domain.query.QUrl;
+
+import java.util.List;
+
+/**
+ * Runs the same queries as {@link UrlController} for benchmarks outside this package.
+ */
+public final class UrlQueries {
+
+    private UrlQueries() {
+    }
+
+    public static KeysetPage<Url> firstPage() {
+        return UrlController.findUrls(null, null);
+    }
+
+    public static Url url(long urlId) {
+        return new QUrl().id.equalTo(urlId).findOne();
+    }
+
+    public static KeysetPage<UrlCheck> latestChecks(long urlId) {
+        return UrlController.findChecks(urlId, null, null);
+    }
+
+    public static List<UrlCheckSummary> summaries(long urlId) {
+        return UrlController.findSummaries(urlId);
+    }
+}
@@ -0,0 +1,35 @@
+package hexlet.code.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and normalizing a submitted url, as {@code createUrl} does before the insert.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NormalizeBenchmark {
+
+    @Param({
+        "https://www.example.com/some/path?query=1",
+        "HTTP://WWW.Example.COM.:80/",
+        "https://xn--e1afmkfd.xn--p1ai/страница",
+        "https://пример.рф:8443"
+    })
+    private String input;
+
+    @Benchmark
+    public String normalize() throws MalformedURLException {
+        return UrlNormalizer.normalize(new URL(input));
+    }
+}
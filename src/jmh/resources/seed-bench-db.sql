@@ -0,0 +1,38 @@
+INSERT INTO url (name, origin, host, created_at, last_check_at, last_status_code, last_content_hash)
+SELECT 'https://site' || X || '.example.com',
+       'https://site' || X || '.example.com',
+       'site' || X || '.example.com',
+       DATEADD('MINUTE', X, TIMESTAMP '2022-01-01 00:00:00'),
+       DATEADD('MINUTE', X, TIMESTAMP '2022-06-01 00:00:00'),
+       200,
+       'bench-' || (X - 1)
+FROM SYSTEM_RANGE(1, 100000);
+
+INSERT INTO check_content (hash, title, h1, description)
+SELECT 'bench-' || X,
+       'Site ' || X || ' - online store, news and reviews',
+       'Welcome to site ' || X,
+       REPEAT('A realistic meta description for the page. ', 4)
+FROM SYSTEM_RANGE(0, 99999);
+
+INSERT INTO url_check (status_code, content_hash, changed, url_id, created_at)
+SELECT CASE WHEN MOD(X, 20) = 0 THEN 404 ELSE 200 END,
+       'bench-' || MOD(X, 100000),
+       FALSE,
+       MOD(X, 100000) + 1,
+       DATEADD('SECOND', X * 10, TIMESTAMP '2022-01-01 00:00:00')
+FROM SYSTEM_RANGE(1, 1000000);
+
+INSERT INTO url_check_summary (url_id, check_date, check_count, status2xx, status3xx, status4xx, status5xx,
+                               status_other, first_title, last_title, title_changes)
+SELECT MOD(X, 1000) + 1,
+       DATEADD('DAY', X / 1000, DATE '2021-12-01'),
+       24, 22, 0, 1, 1, 0,
+       'Site ' || MOD(X, 1000),
+       'Site ' || MOD(X, 1000),
+       0
+FROM SYSTEM_RANGE(0, 29999);
+
+CREATE ALIAS IF NOT EXISTS FT_INIT FOR "org.h2.fulltext.FullText.init";
+CALL FT_INIT();
+CALL FT_CREATE_INDEX('PUBLIC', 'CHECK_CONTENT', 'TITLE,H1,DESCRIPTION');
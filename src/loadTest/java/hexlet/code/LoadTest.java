@@ -0,0 +1,272 @@
+package hexlet.code;
+
+import io.ebean.Database;
+import io.ebean.DatabaseFactory;
+import io.ebean.SqlRow;
+import io.ebean.config.DatabaseConfig;
+import io.ebean.datasource.DataSourceConfig;
+import io.javalin.Javalin;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Drives mixed traffic against the whole app: browsing the url list, opening url pages,
+ * adding urls and requesting checks of sites in a local {@link TargetFarm}. The app runs on
+ * an ephemeral port with an in-memory H2 database seeded with {@value #SEED_URLS} urls.
+ *
+ * <p>Every virtual user sends its next request as soon as the previous one completed, so the
+ * latencies are those of a closed system at the given concurrency. Per route it reports the
+ * throughput and the p50, p99 and maximum latency after the warm-up, and writes them as CSV.
+ * Checks are requested through the API, which answers {@code REJECTED} instead of redirecting
+ * when the queue or the per host limit is full, so rejected checks count as errors.</p>
+ *
+ * <p>Options, all optional: {@code --users=32 --duration=60 --warmup=10} (seconds) and
+ * {@code --report=build/reports/load-test/results.csv}.</p>
+ */
+public final class LoadTest {
+
+    private static final int SEED_URLS = 10_000;
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final int URLS_PER_PAGE = 10;
+
+    private final String baseUrl;
+
+    private final List<Long> targetIds;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final Map<String, Route> routes = new LinkedHashMap<>();
+
+    private LoadTest(String baseUrl, List<Long> targetIds) {
+        this.baseUrl = baseUrl;
+        this.targetIds = targetIds;
+        for (String name : List.of("listUrls", "showUrl", "createUrl", "checkUrl")) {
+            routes.put(name, new Route());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "32"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        Path report = Path.of(options.getOrDefault("report", "build/reports/load-test/results.csv"));
+
+        Database database = startDatabase();
+        Javalin app = App.getApp();
+        try (TargetFarm farm = new TargetFarm()) {
+            app.start(0);
+            String baseUrl = "http://localhost:" + app.port();
+            LoadTest loadTest = new LoadTest(baseUrl, addTargets(baseUrl, database, farm));
+
+            System.out.printf("Running %d users for %ds after a %ds warm-up against %s%n",
+                    users, duration.toSeconds(), warmup.toSeconds(), baseUrl);
+            loadTest.run(users, warmup, duration, report);
+        } finally {
+            app.stop();
+            database.shutdown();
+        }
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Registers an in-memory database as the default one before the app looks it up.
+     */
+    private static Database startDatabase() {
+        DataSourceConfig dataSource = new DataSourceConfig();
+        dataSource.setUrl("jdbc:h2:mem:load;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("sa");
+        dataSource.setMaxConnections(50);
+
+        DatabaseConfig config = new DatabaseConfig();
+        config.setName("load");
+        config.setDataSourceConfig(dataSource);
+        config.setDefaultServer(true);
+        config.setRunMigration(false);
+        config.setDdlGenerate(true);
+        config.setDdlRun(true);
+        Database database = DatabaseFactory.create(config);
+
+        database.sqlUpdate("insert into url (name, origin, host, created_at)"
+                + " select 'https://site' || x || '.example.com', 'https://site' || x || '.example.com',"
+                + " 'site' || x || '.example.com', current_timestamp from system_range(1, " + SEED_URLS + ")")
+                .execute();
+        return database;
+    }
+
+    private static List<Long> addTargets(String baseUrl, Database database, TargetFarm farm)
+            throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        for (String url : farm.urls()) {
+            client.send(form(baseUrl + "/urls", "url=" + URLEncoder.encode(url, StandardCharsets.UTF_8)),
+                    HttpResponse.BodyHandlers.discarding());
+        }
+        List<Long> ids = new ArrayList<>();
+        for (SqlRow row : database.sqlQuery("select id from url where name in (:names)")
+                .setParameter("names", farm.urls())
+                .findList()) {
+            ids.add(row.getLong("id"));
+        }
+        return ids;
+    }
+
+    private static HttpRequest form(String uri, String body) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private void run(int users, Duration warmup, Duration duration, Path report)
+            throws InterruptedException, IOException {
+        long warmupEnd = System.nanoTime() + warmup.toNanos();
+        long end = warmupEnd + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+        for (int i = 0; i < users; i++) {
+            executor.submit(() -> {
+                while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                    step();
+                }
+                return null;
+            });
+        }
+
+        Thread.sleep(warmup.toMillis());
+        routes.values().forEach(Route::reset);
+        executor.shutdown();
+        executor.awaitTermination(duration.toSeconds() + MAX_LATENCY_NANOS / 1_000_000_000, TimeUnit.SECONDS);
+        report(duration, report);
+    }
+
+    /**
+     * One request of a user: half of them list pages, a third open url pages, the rest add
+     * urls or request checks.
+     */
+    private void step() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int dice = random.nextInt(100);
+        if (dice < 50) {
+            long after = random.nextInt(SEED_URLS / URLS_PER_PAGE) * URLS_PER_PAGE;
+            send("listUrls", HttpRequest.newBuilder(URI.create(baseUrl + "/urls?after=" + after)).build());
+        } else if (dice < 85) {
+            long id = random.nextInt(SEED_URLS) + 1;
+            send("showUrl", HttpRequest.newBuilder(URI.create(baseUrl + "/urls/" + id)).build());
+        } else if (dice < 92) {
+            String url = "https://" + UUID.randomUUID() + ".example.org";
+            send("createUrl", form(baseUrl + "/urls", "url=" + URLEncoder.encode(url, StandardCharsets.UTF_8)));
+        } else {
+            long id = targetIds.get(random.nextInt(targetIds.size()));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/checks"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"ids\":[" + id + "]}"))
+                    .build();
+            send("checkUrl", request, HttpResponse.BodyHandlers.ofString(),
+                    response -> response.statusCode() < 400 && !response.body().contains("\"REJECTED\""));
+        }
+    }
+
+    private void send(String route, HttpRequest request) {
+        send(route, request, HttpResponse.BodyHandlers.discarding(), response -> response.statusCode() < 400);
+    }
+
+    private <T> void send(String route, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler,
+                          Predicate<HttpResponse<T>> success) {
+        Route stats = routes.get(route);
+        long started = System.nanoTime();
+        try {
+            HttpResponse<T> response = client.send(request, bodyHandler);
+            stats.record(System.nanoTime() - started, success.test(response));
+        } catch (IOException e) {
+            stats.record(System.nanoTime() - started, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report(Duration duration, Path report) throws IOException {
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(report))) {
+            csv.println("route,requests,errors,requests_per_second,p50_ms,p99_ms,max_ms");
+            System.out.printf("%-10s %10s %8s %10s %10s %10s %10s%n",
+                    "route", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+            for (Map.Entry<String, Route> entry : routes.entrySet()) {
+                Histogram histogram = entry.getValue().histogram();
+                long errors = entry.getValue().errors.sum();
+                double throughput = histogram.getTotalCount() / (double) duration.toSeconds();
+                double p50 = millis(histogram.getValueAtPercentile(50));
+                double p99 = millis(histogram.getValueAtPercentile(99));
+                double max = millis(histogram.getMaxValue());
+                System.out.printf("%-10s %10d %8d %10.1f %10.2f %10.2f %10.2f%n",
+                        entry.getKey(), histogram.getTotalCount(), errors, throughput, p50, p99, max);
+                csv.printf("%s,%d,%d,%.1f,%.2f,%.2f,%.2f%n",
+                        entry.getKey(), histogram.getTotalCount(), errors, throughput, p50, p99, max);
+            }
+        }
+        System.out.println("Results written to " + report);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class Route {
+        private final Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+
+        private final LongAdder errors = new LongAdder();
+
+        void record(long nanos, boolean success) {
+            recorder.recordValue(Math.min(nanos, MAX_LATENCY_NANOS));
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        void reset() {
+            recorder.reset();
+            errors.reset();
+        }
+
+        Histogram histogram() {
+            return recorder.getIntervalHistogram();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package hexlet.code;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local sites the checks run against, one server per behaviour: fast, slow, a body far above
+ * the checker's size limit, a redirect loop and a failing server.
+ *
+ * <p>Every server listens on all loopback addresses and is reached through
+ * {@value #HOSTS_PER_SERVER} hosts of its own, {@code 127.0.<server>.<n>}, so the checks spread
+ * over many hosts as they do in production instead of all queueing behind the per host limit
+ * of {@code localhost}.</p>
+ */
+final class TargetFarm implements AutoCloseable {
+
+    private static final int SLOW_MILLIS = 2_000;
+
+    private static final int HUGE_BODY_BYTES = 8 * 1024 * 1024;
+
+    private static final int HOSTS_PER_SERVER = 20;
+
+    private final Map<String, MockWebServer> servers = new LinkedHashMap<>();
+
+    TargetFarm() throws IOException {
+        String page = "<html><head><title>Target</title><meta name=\"description\" content=\"load test\">"
+                + "</head><body><h1>Target</h1></body></html>";
+
+        start("fast", request -> new MockResponse().setBody(page));
+        start("slow", request -> new MockResponse()
+                .setBody(page)
+                .setHeadersDelay(SLOW_MILLIS, TimeUnit.MILLISECONDS));
+        Buffer huge = new Buffer();
+        huge.writeUtf8("<html><head><title>Huge</title></head><body>");
+        while (huge.size() < HUGE_BODY_BYTES) {
+            huge.writeUtf8("<p>padding padding padding padding padding padding padding padding</p>");
+        }
+        start("huge", request -> new MockResponse().setBody(huge.clone()));
+        start("redirect", request -> new MockResponse()
+                .setResponseCode(302)
+                .setHeader("Location", request.getPath()));
+        start("error", request -> new MockResponse().setResponseCode(503));
+    }
+
+    private void start(String name, Responder responder) throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return responder.respond(request);
+            }
+        });
+        server.start(InetAddress.getByName("0.0.0.0"), 0);
+        servers.put(name, server);
+    }
+
+    /**
+     * Site urls in the form the app stores them, {@value #HOSTS_PER_SERVER} distinct hosts per behaviour.
+     */
+    List<String> urls() {
+        List<String> urls = new ArrayList<>();
+        int network = 0;
+        for (MockWebServer server : servers.values()) {
+            network++;
+            for (int host = 1; host <= HOSTS_PER_SERVER; host++) {
+                urls.add("http://127.0." + network + "." + host + ":" + server.getPort());
+            }
+        }
+        return urls;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (MockWebServer server : servers.values()) {
+            server.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Responder {
+        MockResponse respond(RecordedRequest request);
+    }
+}
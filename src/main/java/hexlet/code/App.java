@@ -1,20 +1,78 @@
 package hexlet.code;
 
+import hexlet.code.checker.CheckJobQueue;
+import hexlet.code.checker.CheckRetention;
+import hexlet.code.checker.CheckScheduler;
+import hexlet.code.checker.CheckStore;
+import hexlet.code.checker.CheckSweeper;
+import hexlet.code.checker.CheckerHttpClient;
+import hexlet.code.checker.PageDiscovery;
+import hexlet.code.checker.PolitenessCache;
+import hexlet.code.checker.SharedCheckQueue;
+import hexlet.code.checker.UrlChecker;
+import hexlet.code.controllers.ApiController;
+import hexlet.code.controllers.CachedCount;
+import hexlet.code.controllers.ExportController;
+import hexlet.code.controllers.HealthController;
+import hexlet.code.controllers.MetricsController;
+import hexlet.code.controllers.PageCache;
 import hexlet.code.controllers.RootController;
+import hexlet.code.controllers.TemplateRenderer;
 import hexlet.code.controllers.UrlController;
+import hexlet.code.controllers.UrlSearch;
+import hexlet.code.domain.OriginBackfill;
+import hexlet.code.domain.Replica;
+import hexlet.code.domain.query.QUrl;
+import hexlet.code.metrics.EbeanMetrics;
+import hexlet.code.metrics.PoolMetrics;
+import hexlet.code.metrics.RouteMetrics;
+import io.avaje.config.Config;
+import io.ebean.DB;
+import io.ebean.Database;
 import io.javalin.Javalin;
+import io.javalin.core.compression.CompressionStrategy;
+import io.javalin.http.Header;
+import io.javalin.http.staticfiles.Location;
 import io.javalin.plugin.rendering.template.JavalinThymeleaf;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.core.instrument.binder.system.UptimeMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import nz.net.ultraq.thymeleaf.layoutdialect.LayoutDialect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.context.IWebContext;
 import org.thymeleaf.extras.java8time.dialect.Java8TimeDialect;
+import org.thymeleaf.linkbuilder.StandardLinkBuilder;
+import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 
+import javax.persistence.PersistenceException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 import static io.javalin.apibuilder.ApiBuilder.get;
 import static io.javalin.apibuilder.ApiBuilder.path;
 import static io.javalin.apibuilder.ApiBuilder.post;
 
 public class App {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(App.class);
+
+    private static final String EXIT_WHEN_READY = "--exit-when-ready";
+
     private static int getPort() {
         String port = System.getenv().getOrDefault("PORT", "5000");
         return Integer.valueOf(port);
@@ -28,43 +86,333 @@ public class App {
         return getMode().equals("production");
     }
 
-    private static void addRoutes(Javalin app) {
-        app.get("/", RootController.welcome);
+    private static void addRoutes(Javalin app, RouteMetrics metrics) {
+        app.get("/", metrics.timed("welcome", RootController.welcome));
+        app.get("/metrics", MetricsController.scrape);
+        app.get("/health/live", HealthController.live);
+        app.get("/health/ready", HealthController.ready);
 
         app.routes(() -> {
             path("urls", () -> {
-                get(UrlController.listUrls);
-                post(UrlController.createUrl);
-                get("{id}", UrlController.showUrl);
-                post("{id}/checks", UrlController.checkUrl);
+                get(metrics.timed("listUrls", UrlController.listUrls));
+                post(metrics.timed("createUrl", UrlController.createUrl));
+                post("checks", metrics.timed("checkAllUrls", UrlController.checkAllUrls));
+                get("{id}", metrics.timed("showUrl", UrlController.showUrl));
+                post("{id}/checks", metrics.timed("checkUrl", UrlController.checkUrl));
+                post("{id}/schedule", metrics.timed("scheduleChecks", UrlController.scheduleChecks));
+                post("{id}/pages", metrics.timed("discoverPages", UrlController.discoverPages));
+                get("{id}/checks", metrics.timed("listChecks", UrlController.listChecks));
+                get("{id}/checks/status", metrics.timed("checkStatus", UrlController.checkStatus));
+            });
+            path("api/v1", () -> {
+                get("urls", metrics.timed("api.listUrls", ApiController.listUrls));
+                post("urls", metrics.timed("api.createUrls", ApiController.createUrls));
+                post("checks", metrics.timed("api.checkUrls", ApiController.checkUrls));
+                get("checks/export", metrics.timed("api.exportChecks", ExportController.exportChecks));
+                get("changes", metrics.timed("api.listChanges", ApiController.listChanges));
+                get("urls/{id}", metrics.timed("api.showUrl", ApiController.showUrl));
+                get("urls/{id}/checks", metrics.timed("api.listChecks", ApiController.listChecks));
             });
         });
     }
 
-    private static TemplateEngine getTemplateEngine() {
+    private static PrometheusMeterRegistry getMeterRegistry() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        new ClassLoaderMetrics().bindTo(registry);
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmGcMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+        new UptimeMetrics().bindTo(registry);
+        return registry;
+    }
+
+    static TemplateEngine getTemplateEngine(boolean production) {
         TemplateEngine templateEngine = new TemplateEngine();
 
         ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
         templateResolver.setPrefix("/templates/");
         templateResolver.setCharacterEncoding("UTF-8");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        // parsed templates stay cached until restart in production and are re-read on every render otherwise
+        templateResolver.setCacheable(production);
+        templateResolver.setCacheTTLMs(null);
 
         templateEngine.addTemplateResolver(templateResolver);
+        templateEngine.setLinkBuilder(new StandardLinkBuilder() {
+            @Override
+            protected String computeContextPath(IExpressionContext context, String base,
+                                                Map<String, Object> parameters) {
+                // cached fragments and the warm-up render outside a request; the app is served from the root
+                return context instanceof IWebContext ? super.computeContextPath(context, base, parameters) : "";
+            }
+        });
         templateEngine.addDialect(new LayoutDialect());
         templateEngine.addDialect(new Java8TimeDialect());
 
         return templateEngine;
     }
 
+    /**
+     * Returns the default database once a query went through, so a server that cannot reach its
+     * database fails at startup instead of on the first request.
+     */
+    private static Database getDatabase() {
+        Database database = DB.getDefault();
+        try {
+            database.sqlQuery("select 1").findOne();
+        } catch (PersistenceException e) {
+            throw new IllegalStateException("Database is not reachable", e);
+        }
+        return database;
+    }
+
+    private static GzipHandler getGzipHandler() {
+        GzipHandler gzipHandler = new GzipHandler();
+        gzipHandler.setMinGzipSize(Config.getInt("http.compression.minBytes", 1024));
+        gzipHandler.setCompressionLevel(Config.getInt("http.compression.level", 6));
+        return gzipHandler;
+    }
+
+    /**
+     * A server that lets requests in progress finish when it is stopped, for up to the stop timeout.
+     */
+    private static Server getServer() {
+        Server server = new Server();
+        server.setHandler(new StatisticsHandler());
+        server.setStopTimeout(Config.getLong("lifecycle.stopTimeoutSeconds", 5) * 1000);
+        return server;
+    }
+
+    /**
+     * Renders every template and sends the app's own pages through the checker's http client,
+     * which warms up the server, the handlers, the connection pool and the client in one go.
+     * Runs in the background; the app reports ready once it is done.
+     */
+    private static void warmUp(Lifecycle lifecycle, TemplateRenderer templateRenderer, UrlChecker urlChecker,
+                               int port) {
+        Thread thread = new Thread(() -> {
+            String step = "templates";
+            try {
+                if (isProduction()) {
+                    templateRenderer.warmUp();
+                }
+                lifecycle.warmedUp(step);
+                step = "http";
+                int requests = Config.getInt("lifecycle.warmUpRequests", 20);
+                urlChecker.warmUp("http://localhost:" + port + "/", requests);
+                urlChecker.warmUp("http://localhost:" + port + "/urls", requests);
+                lifecycle.warmedUp(step);
+            } catch (Exception e) {
+                LOGGER.error("Warm-up failed, the app does not report ready", e);
+                lifecycle.warmUpFailed(step, e);
+            }
+        }, "app-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops taking new checks, gives the running ones the drain timeout to finish and hands the
+     * rest back to the check queue table, where this or another node picks them up again.
+     */
+    private static void drain(Lifecycle lifecycle, CheckScheduler checkScheduler, SharedCheckQueue sharedCheckQueue,
+                              CheckJobQueue checkJobQueue) throws InterruptedException {
+        lifecycle.startDraining();
+        checkScheduler.shutdown();
+        sharedCheckQueue.shutdown();
+        List<Long> unfinished = checkJobQueue.drain(
+                Duration.ofSeconds(Config.getLong("lifecycle.drainTimeoutSeconds", 20)));
+        if (!unfinished.isEmpty()) {
+            sharedCheckQueue.requeue(unfinished);
+        }
+    }
+
+    private static CheckerHttpClient getCheckerHttpClient() {
+        return new CheckerHttpClient(new CheckerHttpClient.Settings()
+                .connectTimeout(Duration.ofMillis(Config.getLong("checker.http.connectTimeoutMillis", 5_000)))
+                .readTimeout(Duration.ofMillis(Config.getLong("checker.http.readTimeoutMillis", 10_000)))
+                .totalTimeout(Duration.ofMillis(Config.getLong("checker.http.totalTimeoutMillis", 30_000)))
+                .idleTimeout(Duration.ofSeconds(Config.getLong("checker.http.idleTimeoutSeconds", 30)))
+                .connectionTtl(Duration.ofSeconds(Config.getLong("checker.http.connectionTtlSeconds", 300)))
+                .maxConnections(Config.getInt("checker.http.maxConnections", 200))
+                .maxConnectionsPerRoute(Config.getInt("checker.http.maxConnectionsPerRoute", 4))
+                .maxRedirects(Config.getInt("checker.http.maxRedirects", 5))
+                .maxBodyBytes(Config.getLong("checker.http.maxBodyBytes", 2_097_152))
+                .maxDrainBytes(Config.getLong("checker.http.maxDrainBytes", 65_536))
+                .maxTimedHosts(Config.getInt("metrics.maxFetchHosts", 200))
+                .dnsCacheSize(Config.getInt("checker.http.dnsCacheSize", 10_000))
+                .dnsCacheTtl(Duration.ofSeconds(Config.getLong("checker.http.dnsCacheTtlSeconds", 300))));
+    }
+
+    private static CheckJobQueue getCheckJobQueue(UrlChecker urlChecker) {
+        return new CheckJobQueue(
+                urlChecker,
+                Config.getInt("checker.workers", 8),
+                Config.getInt("checker.queueCapacity", 200),
+                Config.getInt("checker.perHostLimit", 2),
+                Duration.ofSeconds(Config.getLong("checker.finishedJobTtlSeconds", 300)));
+    }
+
+    private static CheckSweeper getCheckSweeper(UrlChecker urlChecker) {
+        CheckSweeper checkSweeper = new CheckSweeper(
+                urlChecker,
+                Config.getInt("checker.sweep.concurrency", 64),
+                Config.getInt("checker.sweep.perHostConcurrency", 4),
+                Config.getInt("checker.sweep.batchSize", 100));
+        checkSweeper.schedule(Config.getLong("checker.sweep.intervalMinutes", 0));
+        return checkSweeper;
+    }
+
+    private static boolean isSkipLocked() {
+        return Config.getBool("checker.queue.skipLocked", isProduction());
+    }
+
+    private static CheckScheduler getCheckScheduler() {
+        CheckScheduler checkScheduler = new CheckScheduler(
+                Config.getInt("checker.schedule.defaultIntervalMinutes", 0),
+                Config.getInt("checker.schedule.batchSize", 100),
+                Duration.ofMinutes(Config.getLong("checker.schedule.catchUpMinutes", 60)),
+                isSkipLocked());
+        checkScheduler.start(Config.getLong("checker.schedule.pollSeconds", 0));
+        return checkScheduler;
+    }
+
+    private static SharedCheckQueue getSharedCheckQueue(CheckJobQueue checkJobQueue) {
+        SharedCheckQueue sharedCheckQueue = new SharedCheckQueue(
+                checkJobQueue,
+                isSkipLocked(),
+                Config.getInt("checker.queue.batchSize", 50),
+                Duration.ofSeconds(Config.getLong("checker.queue.leaseSeconds", 60)),
+                Config.getInt("checker.queue.maxAttempts", 5),
+                Duration.ofSeconds(Config.getLong("checker.queue.retrySeconds", 30)));
+        sharedCheckQueue.start(Config.getLong("checker.queue.pollMillis", 0));
+        return sharedCheckQueue;
+    }
+
+    private static PolitenessCache getPolitenessCache(CheckerHttpClient checkerHttpClient) {
+        return new PolitenessCache(
+                checkerHttpClient,
+                Config.getLong("checker.discovery.maxSites", 10_000),
+                Duration.ofMinutes(Config.getLong("checker.discovery.robotsTtlMinutes", 60)),
+                Duration.ofMillis(Config.getLong("checker.discovery.defaultCrawlDelayMillis", 1_000)),
+                Duration.ofSeconds(Config.getLong("checker.discovery.maxCrawlDelaySeconds", 30)));
+    }
+
+    private static PageDiscovery getPageDiscovery(UrlChecker urlChecker, CheckerHttpClient checkerHttpClient,
+                                                  PolitenessCache politenessCache) {
+        return new PageDiscovery(
+                urlChecker,
+                checkerHttpClient,
+                politenessCache,
+                Config.getInt("checker.discovery.workers", 4),
+                Config.getInt("checker.discovery.maxPages", 0),
+                Config.getInt("checker.discovery.maxSitemaps", 5));
+    }
+
+    private static PageCache getPageCache(TemplateEngine templateEngine) {
+        return new PageCache(
+                templateEngine,
+                Config.getLong("cache.maxUrls", 10_000),
+                Config.getLong("cache.maxPages", 1_000),
+                Duration.ofSeconds(Config.getLong("cache.ttlSeconds", 60)));
+    }
+
+    private static CheckRetention getCheckRetention(PageCache pageCache) {
+        CheckRetention checkRetention = new CheckRetention(
+                Config.getInt("checker.retention.days", 90),
+                Config.getInt("checker.retention.batchSize", 1000),
+                pageCache::urlChanged);
+        checkRetention.schedule(Config.getLong("checker.retention.intervalHours", 0));
+        return checkRetention;
+    }
+
     public static Javalin getApp() {
+        PrometheusMeterRegistry meterRegistry = getMeterRegistry();
+        Metrics.addRegistry(meterRegistry);
+        Database database = getDatabase();
+        OriginBackfill.run();
+        EbeanMetrics ebeanMetrics = new EbeanMetrics(database);
+        ebeanMetrics.bindTo(meterRegistry);
+        new PoolMetrics(database).bindTo(meterRegistry);
+        Database replica = Replica.start();
+        if (replica != null) {
+            new PoolMetrics(replica).bindTo(meterRegistry);
+        }
+
+        Lifecycle lifecycle = new Lifecycle("database", "templates", "http");
+        lifecycle.warmedUp("database");
+
+        TemplateEngine templateEngine = getTemplateEngine(isProduction());
+        TemplateRenderer templateRenderer = new TemplateRenderer(templateEngine,
+                Config.getBool("templates.streaming", false));
+        PageCache pageCache = getPageCache(templateEngine);
+        pageCache.bindTo(meterRegistry);
+
+        CheckerHttpClient checkerHttpClient = getCheckerHttpClient();
+        checkerHttpClient.bindTo(meterRegistry);
+        UrlChecker urlChecker = new UrlChecker(new CheckStore(pageCache::urlChanged), checkerHttpClient);
+        CheckJobQueue checkJobQueue = getCheckJobQueue(urlChecker);
+        CheckSweeper checkSweeper = getCheckSweeper(urlChecker);
+        CheckScheduler checkScheduler = getCheckScheduler();
+        SharedCheckQueue sharedCheckQueue = getSharedCheckQueue(checkJobQueue);
+        CheckRetention checkRetention = getCheckRetention(pageCache);
+        PolitenessCache politenessCache = getPolitenessCache(checkerHttpClient);
+        CachedCount totalUrls = new CachedCount(() -> new QUrl(Replica.get()).findCount(), Duration.ofSeconds(30));
+        totalUrls.start();
+        PageDiscovery pageDiscovery = getPageDiscovery(urlChecker, checkerHttpClient, politenessCache);
+        checkJobQueue.bindTo(meterRegistry);
+        checkSweeper.bindTo(meterRegistry);
+        politenessCache.bindTo(meterRegistry);
+        pageDiscovery.bindTo(meterRegistry);
+
         Javalin app = Javalin.create(config -> {
+            config.server(App::getServer);
             if (!isProduction()) {
                 config.enableDevLogging();
             }
-            config.enableWebjars();
-            JavalinThymeleaf.configure(getTemplateEngine());
+            // webjar paths carry the library version, so a cached copy never goes stale
+            config.addStaticFiles(staticFiles -> {
+                staticFiles.hostedPath = "/webjars";
+                staticFiles.directory = "META-INF/resources/webjars";
+                staticFiles.location = Location.CLASSPATH;
+                staticFiles.headers = Map.of(Header.CACHE_CONTROL, "public, max-age=31536000, immutable");
+            });
+            // Jetty compresses everything written to the response, including streamed bodies
+            config.compressionStrategy(CompressionStrategy.NONE);
+            config.configureServletContextHandler(handler -> handler.setGzipHandler(getGzipHandler()));
+            JavalinThymeleaf.configure(templateEngine);
+        });
+
+        app.attribute(Lifecycle.class, lifecycle);
+        app.attribute(TemplateRenderer.class, templateRenderer);
+        app.attribute(PageCache.class, pageCache);
+        app.attribute(CachedCount.class, totalUrls);
+        // the text search of the production database, Postgres, and of H2 otherwise
+        app.attribute(UrlSearch.class, new UrlSearch(Config.getBool("search.postgres", isProduction())));
+        app.attribute(CheckJobQueue.class, checkJobQueue);
+        app.attribute(CheckSweeper.class, checkSweeper);
+        app.attribute(CheckScheduler.class, checkScheduler);
+        app.attribute(SharedCheckQueue.class, sharedCheckQueue);
+        app.attribute(PageDiscovery.class, pageDiscovery);
+        app.attribute(CheckerHttpClient.class, checkerHttpClient);
+        app.attribute(PrometheusMeterRegistry.class, meterRegistry);
+        app.attribute(EbeanMetrics.class, ebeanMetrics);
+        app.events(event -> {
+            event.serverStarted(() -> warmUp(lifecycle, templateRenderer, urlChecker, app.port()));
+            event.serverStopping(() -> drain(lifecycle, checkScheduler, sharedCheckQueue, checkJobQueue));
+            event.serverStopped(() -> {
+                checkRetention.shutdown();
+                checkSweeper.shutdown();
+                totalUrls.shutdown();
+                pageDiscovery.shutdown();
+                checkerHttpClient.shutdown();
+                Metrics.removeRegistry(meterRegistry);
+                meterRegistry.close();
+            });
         });
 
-        addRoutes(app);
+        addRoutes(app, new RouteMetrics(meterRegistry));
 
         app.before(ctx -> {
             ctx.attribute("ctx", ctx);
@@ -73,8 +421,39 @@ public class App {
         return app;
     }
 
-    public static void main(String[] args) {
+    /**
+     * Stops the server, which drains the checks, and closes the databases only after that, so
+     * the checks that finish during the drain can still be saved.
+     */
+    private static void stop(Javalin app) {
+        app.stop();
+        Database database = DB.getDefault();
+        Database replica = Replica.get();
+        if (replica != database) {
+            replica.shutdown(true, false);
+        }
+        database.shutdown(true, false);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // the databases are shut down by the app's own hook, after the checks are drained
+        System.setProperty("ebean.registerShutdownHook", "false");
         Javalin app = getApp();
         app.start(getPort());
+
+        if (Arrays.asList(args).contains(EXIT_WHEN_READY)) {
+            // a training run for the class data sharing archive, see the appCdsArchive task
+            Lifecycle lifecycle = app.attribute(Lifecycle.class);
+            boolean ready = lifecycle.awaitReady(
+                    Duration.ofSeconds(Config.getLong("lifecycle.readyTimeoutSeconds", 120)));
+            if (!ready) {
+                LOGGER.error("The app did not get ready: {}",
+                        lifecycle.getFailure() != null ? lifecycle.getFailure() : "timed out");
+            }
+            stop(app);
+            System.exit(ready ? 0 : 1);
+        }
+        // SIGTERM on redeploy: drain the checks and let requests in progress finish
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> stop(app), "app-shutdown"));
     }
 }
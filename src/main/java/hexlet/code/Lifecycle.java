@@ -0,0 +1,90 @@
+package hexlet.code;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where the application is between startup and shutdown, as the health endpoints report it.
+ *
+ * <p>The application is ready once every warm-up step has reported in and stops being ready
+ * as soon as it starts draining, so a load balancer moves traffic away before the server
+ * stops accepting it. A failed warm-up step leaves it starting for good.</p>
+ */
+public final class Lifecycle {
+
+    public enum State {
+        STARTING,
+        READY,
+        DRAINING
+    }
+
+    private final Map<String, Boolean> warmUps = new LinkedHashMap<>();
+
+    private final CountDownLatch ready = new CountDownLatch(1);
+
+    private volatile State state = State.STARTING;
+
+    private volatile String failure;
+
+    /**
+     * @param warmUps the steps that have to finish before the application is ready
+     */
+    public Lifecycle(String... warmUps) {
+        for (String warmUp : warmUps) {
+            this.warmUps.put(warmUp, false);
+        }
+    }
+
+    public synchronized void warmedUp(String warmUp) {
+        warmUps.replace(warmUp, true);
+        if (state == State.STARTING && !warmUps.containsValue(false)) {
+            state = State.READY;
+            ready.countDown();
+        }
+    }
+
+    /**
+     * Records that a warm-up step failed, which wakes up whoever waits for the app to be ready.
+     */
+    public synchronized void warmUpFailed(String warmUp, Exception e) {
+        failure = warmUp + ": " + e.getMessage();
+        ready.countDown();
+    }
+
+    public synchronized void startDraining() {
+        state = State.DRAINING;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    /**
+     * Waits up to {@code timeout} for the app to be ready; returns {@code false} if a warm-up step
+     * failed or the time ran out first.
+     */
+    public boolean awaitReady(Duration timeout) throws InterruptedException {
+        return ready.await(timeout.toNanos(), TimeUnit.NANOSECONDS) && failure == null;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state);
+        status.put("warmUps", new LinkedHashMap<>(warmUps));
+        if (failure != null) {
+            status.put("failure", failure);
+        }
+        return status;
+    }
+}
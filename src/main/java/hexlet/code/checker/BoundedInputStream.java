@@ -0,0 +1,76 @@
+package hexlet.code.checker;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+
+/**
+ * Reports end of stream after {@code maxBytes} and fails once the deadline has passed,
+ * so neither a huge body nor a slowly trickling one can hold a worker indefinitely.
+ */
+final class BoundedInputStream extends FilterInputStream {
+    private static final int SKIP_BUFFER_SIZE = 8192;
+
+    private final long maxBytes;
+
+    private final long deadline;
+
+    private long count;
+
+    /**
+     * The deadline is a {@link System#nanoTime()} value, so it can be the one of the whole request.
+     */
+    BoundedInputStream(InputStream in, long maxBytes, long deadline) {
+        super(in);
+        this.maxBytes = maxBytes;
+        this.deadline = deadline;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (count >= maxBytes) {
+            return -1;
+        }
+        checkDeadline();
+        int b = super.read();
+        if (b != -1) {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (count >= maxBytes) {
+            return -1;
+        }
+        checkDeadline();
+        int read = super.read(buffer, offset, (int) Math.min(length, maxBytes - count));
+        if (read > 0) {
+            count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        int length = (int) Math.min(n, SKIP_BUFFER_SIZE);
+        return Math.max(read(new byte[length], 0, length), 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void checkDeadline() throws SocketTimeoutException {
+        if (System.nanoTime() - deadline > 0) {
+            throw new SocketTimeoutException("Response body was not read in time");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package hexlet.code.checker;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of host lookups with a fixed time to live.
+ */
+final class CachingDnsResolver implements DnsResolver {
+    private final int maxEntries;
+
+    private final long ttlNanos;
+
+    private final Map<String, Entry> cache;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    CachingDnsResolver(int maxEntries, long ttlNanos) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > CachingDnsResolver.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        long now = System.nanoTime();
+        synchronized (cache) {
+            Entry entry = cache.get(host);
+            if (entry != null && now - entry.expiresAt < 0) {
+                hits.increment();
+                return entry.addresses.clone();
+            }
+        }
+
+        misses.increment();
+        InetAddress[] addresses = SystemDefaultDnsResolver.INSTANCE.resolve(host);
+        synchronized (cache) {
+            cache.put(host, new Entry(addresses, now + ttlNanos));
+        }
+        return addresses.clone();
+    }
+
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    private static final class Entry {
+        private final InetAddress[] addresses;
+
+        private final long expiresAt;
+
+        Entry(InetAddress[] addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package hexlet.code.checker;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+public final class CheckJob {
+    private final long urlId;
+
+    private final String host;
+
+    private final Instant createdAt = Instant.now();
+
+    private volatile CheckStatus status = CheckStatus.QUEUED;
+
+    private volatile String error;
+
+    private volatile boolean interrupted;
+
+    private final CompletableFuture<CheckStatus> completion = new CompletableFuture<>();
+
+    public CheckJob(long urlId, String host) {
+        this.urlId = urlId;
+        this.host = host;
+    }
+
+    public long getUrlId() {
+        return urlId;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public CheckStatus getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Completes with {@link CheckStatus#DONE} or {@link CheckStatus#FAILED} once the check has finished.
+     */
+    public CompletionStage<CheckStatus> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Whether the check was cut off by a drain of the queue rather than failing on its own.
+     */
+    public boolean isInterrupted() {
+        return interrupted;
+    }
+
+    public boolean isActive() {
+        return status == CheckStatus.QUEUED || status == CheckStatus.RUNNING;
+    }
+
+    void start() {
+        status = CheckStatus.RUNNING;
+    }
+
+    void complete() {
+        status = CheckStatus.DONE;
+        completion.complete(status);
+    }
+
+    void interrupt(String message) {
+        interrupted = true;
+        fail(message);
+    }
+
+    void fail(String message) {
+        error = message;
+        status = CheckStatus.FAILED;
+        completion.complete(status);
+    }
+}
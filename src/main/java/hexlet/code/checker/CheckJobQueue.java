@@ -0,0 +1,201 @@
+package hexlet.code.checker;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import hexlet.code.domain.Url;
+import hexlet.code.domain.query.QUrl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Runs url checks on a bounded pool of worker threads.
+ *
+ * <p>At most {@code capacity} jobs wait in the queue and at most {@code perHostLimit}
+ * jobs per host are queued or running at the same time; anything above that is
+ * rejected with {@link RejectedExecutionException}. A finished job is kept for
+ * {@code finishedTtl}, so its status can still be read for a while, and then forgotten.</p>
+ */
+public final class CheckJobQueue implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckJobQueue.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final UrlChecker checker;
+
+    private final ThreadPoolExecutor executor;
+
+    private final int perHostLimit;
+
+    private final Map<Long, CheckJob> jobs = new ConcurrentHashMap<>();
+
+    private final Cache<Long, CheckJob> finishedJobs;
+
+    private final Map<String, AtomicInteger> hostLoad = new ConcurrentHashMap<>();
+
+    private volatile boolean interrupting;
+
+    public CheckJobQueue(UrlChecker checker, int workers, int capacity, int perHostLimit, Duration finishedTtl) {
+        this.checker = checker;
+        this.perHostLimit = perHostLimit;
+        this.finishedJobs = Caffeine.newBuilder()
+                .expireAfterWrite(finishedTtl)
+                .build();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                workers,
+                workers,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "url-checker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public CheckJob submit(Url url) {
+        String host = UrlChecker.hostOf(url);
+        CheckJob newJob = new CheckJob(url.getId(), host);
+        CheckJob job = jobs.compute(url.getId(), (id, current) ->
+                current != null && current.isActive() ? current : newJob);
+
+        if (job != newJob) {
+            return job;
+        }
+
+        if (!acquireHost(host)) {
+            jobs.remove(url.getId(), newJob);
+            throw new RejectedExecutionException("Too many checks in progress for " + host);
+        }
+
+        try {
+            executor.execute(() -> run(newJob, url));
+        } catch (RejectedExecutionException e) {
+            releaseHost(host);
+            jobs.remove(url.getId(), newJob);
+            throw e;
+        }
+        return newJob;
+    }
+
+    /**
+     * Takes one of the host's check slots. The count of a host only lives while it has checks, so
+     * the map does not keep a counter for every host ever checked; both ends change it inside the
+     * map's compute, which keeps a counter from being taken as it is removed.
+     */
+    private boolean acquireHost(String host) {
+        AtomicBoolean acquired = new AtomicBoolean();
+        hostLoad.compute(host, (key, load) -> {
+            AtomicInteger current = load != null ? load : new AtomicInteger();
+            if (current.get() < perHostLimit) {
+                current.incrementAndGet();
+                acquired.set(true);
+            }
+            return current.get() > 0 ? current : null;
+        });
+        return acquired.get();
+    }
+
+    private void releaseHost(String host) {
+        hostLoad.computeIfPresent(host, (key, load) -> load.decrementAndGet() == 0 ? null : load);
+    }
+
+    /**
+     * Returns the queued or running job of the url, or its last job if that finished within the
+     * time to live.
+     */
+    public CheckJob getJob(long urlId) {
+        CheckJob job = jobs.get(urlId);
+        return job != null ? job : finishedJobs.getIfPresent(urlId);
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getRemainingCapacity() {
+        return executor.getQueue().remainingCapacity();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "url-checker", List.of()).bindTo(registry);
+    }
+
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stops taking new checks and waits up to {@code timeout} for the queued and running ones;
+     * checks still running after that are interrupted. Returns the ids of the urls whose checks
+     * did not finish, taken before the interrupt, so a check that ends because of it is among
+     * them and its job is marked {@linkplain CheckJob#isInterrupted() interrupted}.
+     */
+    public List<Long> drain(Duration timeout) throws InterruptedException {
+        executor.shutdown();
+        if (executor.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            return List.of();
+        }
+        List<Long> unfinished = jobs.values().stream()
+                .filter(CheckJob::isActive)
+                .map(CheckJob::getUrlId)
+                .collect(Collectors.toList());
+        interrupting = true;
+        executor.shutdownNow();
+        return unfinished;
+    }
+
+    private void run(CheckJob job, Url url) {
+        job.start();
+        try {
+            // The submitted instance may be shared with other requests, so the check works on its own copy.
+            Url current = new QUrl()
+                    .id.equalTo(url.getId())
+                    .findOne();
+            if (current == null) {
+                job.fail("Url " + url.getId() + " no longer exists");
+                return;
+            }
+            checker.check(current);
+            job.complete();
+        } catch (Exception e) {
+            if (interrupting) {
+                LOGGER.info("Check of {} was interrupted: {}", url.getName(), e.getMessage());
+                job.interrupt(e.getMessage());
+            } else {
+                LOGGER.warn("Check of {} failed: {}", url.getName(), e.getMessage());
+                job.fail(e.getMessage());
+            }
+        } finally {
+            releaseHost(job.getHost());
+            finishedJobs.put(url.getId(), job);
+            jobs.remove(url.getId(), job);
+        }
+    }
+}
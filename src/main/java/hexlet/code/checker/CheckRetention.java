@@ -0,0 +1,171 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.UrlCheckSummary;
+import hexlet.code.domain.query.QCheckContent;
+import hexlet.code.domain.query.QUrlCheck;
+import hexlet.code.domain.query.QUrlCheckSummary;
+import io.ebean.DB;
+import io.ebean.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Rolls url checks older than the retention period into one {@link UrlCheckSummary}
+ * per url and day, and deletes the raw rows batch by batch, together with the contents
+ * that no check, page or url refers to any more.
+ */
+public final class CheckRetention {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckRetention.class);
+
+    private final int retentionDays;
+
+    private final int batchSize;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "url-check-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongConsumer urlChanged;
+
+    public CheckRetention(int retentionDays, int batchSize, LongConsumer urlChanged) {
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+        this.urlChanged = urlChanged;
+    }
+
+    public void schedule(long intervalHours) {
+        if (intervalHours > 0) {
+            executor.scheduleWithFixedDelay(this::rollUpSafely, intervalHours, intervalHours, TimeUnit.HOURS);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public long rollUp() {
+        Instant cutoff = Instant.now()
+                .truncatedTo(ChronoUnit.DAYS)
+                .minus(retentionDays, ChronoUnit.DAYS);
+        long deleted = 0;
+        int rolled;
+        do {
+            rolled = rollUpBatch(cutoff);
+            deleted += rolled;
+        } while (rolled == batchSize && !Thread.currentThread().isInterrupted());
+        return deleted;
+    }
+
+    private int rollUpBatch(Instant cutoff) {
+        try (Transaction transaction = DB.beginTransaction()) {
+            List<UrlCheck> urlChecks = new QUrlCheck()
+                    .select("statusCode, createdAt, url")
+                    .fetch("content", "title")
+                    .createdAt.lessThan(cutoff)
+                    .orderBy()
+                    .id.asc()
+                    .setMaxRows(batchSize)
+                    .findList();
+
+            if (urlChecks.isEmpty()) {
+                return 0;
+            }
+
+            Map<String, UrlCheckSummary> summaries = loadSummaries(urlChecks);
+            List<Long> ids = new ArrayList<>(urlChecks.size());
+            Set<String> hashes = new HashSet<>();
+            for (UrlCheck urlCheck : urlChecks) {
+                LocalDate checkDate = LocalDate.ofInstant(urlCheck.getCreatedAt(), ZoneOffset.UTC);
+                UrlCheckSummary summary = summaries.computeIfAbsent(key(urlCheck.getUrl().getId(), checkDate),
+                        key -> new UrlCheckSummary(urlCheck.getUrl(), checkDate));
+                summary.add(urlCheck.getStatusCode(), urlCheck.getTitle());
+                ids.add(urlCheck.getId());
+                hashes.add(urlCheck.getContent().getHash());
+            }
+
+            transaction.setBatchMode(true);
+            DB.saveAll(summaries.values());
+            new QUrlCheck()
+                    .id.in(ids)
+                    .delete();
+            deleteOrphanContents(hashes);
+            transaction.commit();
+            urlChecks.stream()
+                    .mapToLong(urlCheck -> urlCheck.getUrl().getId())
+                    .distinct()
+                    .forEach(urlChanged);
+            return ids.size();
+        }
+    }
+
+    /**
+     * The latest content hash of a url stays too: the next check of the url compares against it
+     * and stores no content of its own when it is unchanged. The rows are locked first, as
+     * {@link CheckStore} does before it refers to a content, so a check being saved with one of
+     * them either commits first and keeps it, or finds it gone and stores it again.
+     */
+    private static void deleteOrphanContents(Set<String> hashes) {
+        new QCheckContent()
+                .select(QCheckContent.Alias.hash)
+                .hash.in(hashes)
+                .orderBy()
+                .hash.asc()
+                .forUpdate()
+                .findSingleAttributeList();
+        DB.sqlUpdate("delete from check_content c where c.hash in (:hashes)"
+                        + " and not exists (select 1 from url_check k where k.content_hash = c.hash)"
+                        + " and not exists (select 1 from url_page p where p.content_hash = c.hash)"
+                        + " and not exists (select 1 from url u where u.last_content_hash = c.hash)")
+                .setParameter("hashes", hashes)
+                .execute();
+    }
+
+    private static Map<String, UrlCheckSummary> loadSummaries(List<UrlCheck> urlChecks) {
+        Set<Long> urlIds = urlChecks.stream()
+                .map(urlCheck -> urlCheck.getUrl().getId())
+                .collect(Collectors.toSet());
+        Set<LocalDate> dates = urlChecks.stream()
+                .map(urlCheck -> LocalDate.ofInstant(urlCheck.getCreatedAt(), ZoneOffset.UTC))
+                .collect(Collectors.toSet());
+
+        Map<String, UrlCheckSummary> summaries = new HashMap<>();
+        new QUrlCheckSummary()
+                .url.id.in(urlIds)
+                .checkDate.in(dates)
+                .findEach(summary -> summaries.put(key(summary.getUrl().getId(), summary.getCheckDate()), summary));
+        return summaries;
+    }
+
+    private static String key(long urlId, LocalDate checkDate) {
+        return urlId + "/" + checkDate;
+    }
+
+    private void rollUpSafely() {
+        try {
+            long deleted = rollUp();
+            LOGGER.info("Rolled {} url checks older than {} days into daily summaries", deleted, retentionDays);
+        } catch (Exception e) {
+            LOGGER.error("Url check retention failed", e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.QueuedCheck;
+import hexlet.code.domain.Url;
+import hexlet.code.domain.query.QQueuedCheck;
+import hexlet.code.domain.query.QUrl;
+import io.ebean.DB;
+import io.ebean.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Checks urls on their own interval. The schedule lives in {@code url.next_check_at}:
+ * due urls are read in batches from its index, a {@link QueuedCheck} is queued for each
+ * and their next check time is moved one interval ahead with a random jitter, so urls
+ * added together drift apart instead of firing in the same second.
+ *
+ * <p>Both happen in one transaction over locked url rows, so with several nodes polling
+ * a url is queued by exactly one of them per interval.</p>
+ */
+public final class CheckScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckScheduler.class);
+
+    private static final double JITTER = 0.1;
+
+    private final int defaultIntervalMinutes;
+
+    private final int batchSize;
+
+    private final Duration catchUpWindow;
+
+    private final boolean skipLocked;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "url-check-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CheckScheduler(int defaultIntervalMinutes, int batchSize, Duration catchUpWindow, boolean skipLocked) {
+        this.defaultIntervalMinutes = defaultIntervalMinutes;
+        this.batchSize = batchSize;
+        this.catchUpWindow = catchUpWindow;
+        this.skipLocked = skipLocked;
+    }
+
+    /**
+     * Spreads out the checks that fell due while the application was down, then starts polling.
+     */
+    public void start(long intervalSeconds) {
+        if (intervalSeconds > 0) {
+            executor.execute(this::spreadOverdueSafely);
+            executor.scheduleWithFixedDelay(this::pollSafely, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Applies the default interval to a url that is about to be inserted.
+     */
+    public void scheduleNew(Url url) {
+        if (defaultIntervalMinutes > 0) {
+            url.scheduleChecks(defaultIntervalMinutes, nextCheckAt(Instant.now(), defaultIntervalMinutes));
+        }
+    }
+
+    public static Instant nextCheckAt(Instant from, int intervalMinutes) {
+        long intervalSeconds = TimeUnit.MINUTES.toSeconds(intervalMinutes);
+        long jitter = (long) (intervalSeconds * JITTER);
+        return from.plusSeconds(intervalSeconds + ThreadLocalRandom.current().nextLong(-jitter, jitter + 1));
+    }
+
+    /**
+     * Queues up to one batch of due urls and returns how many were queued.
+     */
+    public int poll() {
+        Instant now = Instant.now();
+        try (Transaction transaction = DB.beginTransaction()) {
+            QUrl query = new QUrl()
+                    .select(QUrl.Alias.id, QUrl.Alias.checkIntervalMinutes, QUrl.Alias.nextCheckAt)
+                    .nextCheckAt.lessOrEqualTo(now)
+                    .checkIntervalMinutes.isNotNull()
+                    .orderBy()
+                    .nextCheckAt.asc()
+                    .setMaxRows(batchSize);
+            List<Url> due = (skipLocked ? query.forUpdateSkipLocked() : query.forUpdate()).findList();
+            if (due.isEmpty()) {
+                return 0;
+            }
+
+            // A job still queued from an earlier interval (failing and backing off) is not doubled.
+            Set<Long> queued = new QQueuedCheck()
+                    .select("url")
+                    .url.id.in(due.stream().map(Url::getId).collect(Collectors.toList()))
+                    .findList()
+                    .stream()
+                    .map(job -> job.getUrl().getId())
+                    .collect(Collectors.toSet());
+            List<QueuedCheck> jobs = new ArrayList<>();
+            for (Url url : due) {
+                if (!queued.contains(url.getId())) {
+                    jobs.add(new QueuedCheck(url, now));
+                }
+                url.setNextCheckAt(nextCheckAt(now, url.getCheckIntervalMinutes()));
+            }
+
+            transaction.setBatchMode(true);
+            DB.saveAll(jobs);
+            DB.updateAll(due);
+            transaction.commit();
+            return jobs.size();
+        }
+    }
+
+    /**
+     * Moves every overdue url to a random point within the catch-up window (or its own
+     * interval, if shorter), so a restart after downtime does not fire all of them at once.
+     */
+    public int spreadOverdue() {
+        Instant now = Instant.now();
+        int spread = 0;
+        long lastId = 0;
+        List<Url> overdue;
+        do {
+            overdue = new QUrl()
+                    .select(QUrl.Alias.id, QUrl.Alias.checkIntervalMinutes)
+                    .nextCheckAt.lessThan(now)
+                    .checkIntervalMinutes.isNotNull()
+                    .id.greaterThan(lastId)
+                    .orderBy()
+                    .id.asc()
+                    .setMaxRows(batchSize)
+                    .findList();
+
+            for (Url url : overdue) {
+                lastId = url.getId();
+                long window = Math.min(catchUpWindow.toSeconds(),
+                        TimeUnit.MINUTES.toSeconds(url.getCheckIntervalMinutes()));
+                url.setNextCheckAt(now.plusSeconds(ThreadLocalRandom.current().nextLong(window + 1)));
+            }
+            updateAll(overdue);
+            spread += overdue.size();
+        } while (overdue.size() == batchSize);
+        return spread;
+    }
+
+    private static void updateAll(List<Url> urls) {
+        if (urls.isEmpty()) {
+            return;
+        }
+        try (Transaction transaction = DB.beginTransaction()) {
+            transaction.setBatchMode(true);
+            DB.updateAll(urls);
+            transaction.commit();
+        }
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (Exception e) {
+            LOGGER.error("Scheduled url checks failed", e);
+        }
+    }
+
+    private void spreadOverdueSafely() {
+        try {
+            int spread = spreadOverdue();
+            if (spread > 0) {
+                LOGGER.info("Spread {} overdue url checks over the next {} minutes", spread,
+                        catchUpWindow.toMinutes());
+            }
+        } catch (Exception e) {
+            LOGGER.error("Spreading overdue url checks failed", e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package hexlet.code.checker;
+
+public enum CheckStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,186 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.CheckContent;
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.UrlPage;
+import hexlet.code.domain.query.QCheckContent;
+import hexlet.code.domain.query.QUrl;
+import io.ebean.DB;
+import io.ebean.DuplicateKeyException;
+import io.ebean.Transaction;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Persists checks together with the latest-check columns of their url,
+ * so the url list never has to read the check history.
+ */
+public final class CheckStore {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final LongConsumer urlChanged;
+
+    /**
+     * @param urlChanged called with the id of every url whose checks were saved, after the commit
+     */
+    public CheckStore(LongConsumer urlChanged) {
+        this.urlChanged = urlChanged;
+    }
+
+    public void save(UrlCheck urlCheck) {
+        Url url = urlCheck.getUrl();
+        saveWithContents(changedContents(List.of(urlCheck)), transaction -> {
+            urlCheck.save();
+            return recordChecks(List.of(urlCheck));
+        });
+        urlChanged.accept(url.getId());
+    }
+
+    public void saveAll(List<UrlCheck> urlChecks) {
+        if (urlChecks.isEmpty()) {
+            return;
+        }
+        Collection<Long> urlIds = saveWithContents(changedContents(urlChecks), transaction -> {
+            transaction.setBatchMode(true);
+            transaction.setBatchSize(urlChecks.size());
+            DB.saveAll(urlChecks);
+            return recordChecks(urlChecks);
+        });
+        urlIds.forEach(urlChanged::accept);
+    }
+
+    /**
+     * Saves the pages of the url's latest discovery and deletes those it no longer found.
+     */
+    public void savePages(long urlId, Collection<UrlPage> pages, Collection<UrlPage> removed) {
+        List<CheckContent> contents = pages.stream()
+                .map(UrlPage::getContent)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        saveWithContents(contents, transaction -> {
+            transaction.setBatchMode(true);
+            DB.deleteAll(removed);
+            DB.saveAll(pages);
+            return null;
+        });
+        urlChanged.accept(urlId);
+    }
+
+    /**
+     * Runs the save in a transaction that holds the rows of its contents locked until it commits.
+     * Check retention locks a content row before it deletes it, so a content cannot go away
+     * between being found stored and being referred to. If retention deleted one just before the
+     * lock, the contents are stored again and the save is retried.
+     */
+    private static <T> T saveWithContents(List<CheckContent> contents, Function<Transaction, T> save) {
+        Set<String> hashes = contents.stream()
+                .map(CheckContent::getHash)
+                .collect(Collectors.toCollection(TreeSet::new));
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            storeContents(contents);
+            try (Transaction transaction = DB.beginTransaction()) {
+                if (lockContents(hashes) || attempt == MAX_ATTEMPTS) {
+                    T result = save.apply(transaction);
+                    transaction.commit();
+                    return result;
+                }
+            }
+        }
+    }
+
+    /**
+     * Locks the content rows in hash order; returns whether all of them still exist.
+     */
+    private static boolean lockContents(Set<String> hashes) {
+        if (hashes.isEmpty()) {
+            return true;
+        }
+        List<String> locked = new QCheckContent()
+                .select(QCheckContent.Alias.hash)
+                .hash.in(hashes)
+                .orderBy()
+                .hash.asc()
+                .forUpdate()
+                .findSingleAttributeList();
+        return locked.size() == hashes.size();
+    }
+
+    /**
+     * Records the checks on fresh copies of their url rows, locked in id order, rather than on the
+     * copies the checks were fetched with: two checks of a url saved at the same time then neither
+     * lose each other's response time nor let the older one end up as the latest. Returns the ids
+     * of the urls.
+     */
+    private static Collection<Long> recordChecks(List<UrlCheck> urlChecks) {
+        Set<Long> urlIds = urlChecks.stream()
+                .map(urlCheck -> urlCheck.getUrl().getId())
+                .collect(Collectors.toCollection(TreeSet::new));
+        Map<Long, Url> urls = new QUrl()
+                .select(QUrl.Alias.lastCheckAt, QUrl.Alias.lastStatusCode, QUrl.Alias.lastContentHash,
+                        QUrl.Alias.timingHistogram, QUrl.Alias.etag, QUrl.Alias.lastModified)
+                .id.in(urlIds)
+                .orderBy()
+                .id.asc()
+                .forUpdate()
+                .findList()
+                .stream()
+                .collect(Collectors.toMap(Url::getId, Function.identity()));
+        for (UrlCheck urlCheck : urlChecks) {
+            Url url = urls.get(urlCheck.getUrl().getId());
+            // a 2xx fetch set the validators on the copy it was made with
+            if (url != null && url.recordCheck(urlCheck) && urlCheck.getStatusCode() / 100 == 2) {
+                Url fetched = urlCheck.getUrl();
+                url.updateValidators(fetched.getEtag(), fetched.getLastModified());
+            }
+        }
+        DB.updateAll(urls.values());
+        return urlIds;
+    }
+
+    private static List<CheckContent> changedContents(List<UrlCheck> urlChecks) {
+        return urlChecks.stream()
+                .filter(UrlCheck::isChanged)
+                .map(UrlCheck::getContent)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Inserts the contents that are not stored yet. Content rows are immutable and shared, so
+     * they are written ahead of the checks and pages, each in a transaction of its own: a row
+     * that another worker inserted in the meantime is the same row and can be skipped.
+     */
+    private static void storeContents(List<CheckContent> candidates) {
+        Map<String, CheckContent> contents = new LinkedHashMap<>();
+        for (CheckContent content : candidates) {
+            contents.putIfAbsent(content.getHash(), content);
+        }
+        if (contents.isEmpty()) {
+            return;
+        }
+        List<String> stored = new QCheckContent()
+                .select(QCheckContent.Alias.hash)
+                .hash.in(contents.keySet())
+                .findSingleAttributeList();
+        contents.keySet().removeAll(stored);
+        for (CheckContent content : contents.values()) {
+            try {
+                content.insert();
+            } catch (DuplicateKeyException e) {
+                // stored by a concurrent check of a page with the same content
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.query.QUrl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-checks every url: ids are read in keyset order, fetched on a pool of fetch threads
+ * with global and per-host concurrency caps, and the results are written in batches
+ * by a separate writer thread. The urls of a busy host wait in memory for its next free
+ * slot while the sweep moves on to other hosts; a writer that falls behind slows the
+ * fetches down, and one that fails stops the sweep.
+ */
+public final class CheckSweeper implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckSweeper.class);
+
+    private static final long POLL_MILLIS = 100;
+
+    private final UrlChecker checker;
+
+    private final int concurrency;
+
+    private final int perHostConcurrency;
+
+    private final int batchSize;
+
+    private final ScheduledExecutorService sweepExecutor = Executors.newSingleThreadScheduledExecutor(runnable ->
+            daemon(runnable, "url-sweeper"));
+
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor(runnable ->
+            daemon(runnable, "url-sweep-writer"));
+
+    private final ExecutorService fetchExecutor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile SweepReport lastReport;
+
+    public CheckSweeper(UrlChecker checker, int concurrency, int perHostConcurrency, int batchSize) {
+        this.checker = checker;
+        this.concurrency = concurrency;
+        this.perHostConcurrency = perHostConcurrency;
+        this.batchSize = batchSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fetchExecutor = Executors.newFixedThreadPool(concurrency, runnable ->
+                daemon(runnable, "url-sweep-fetcher-" + threadCount.incrementAndGet()));
+    }
+
+    public void schedule(long intervalMinutes) {
+        if (intervalMinutes > 0) {
+            sweepExecutor.scheduleWithFixedDelay(this::sweepIfIdle, intervalMinutes, intervalMinutes,
+                    TimeUnit.MINUTES);
+        }
+    }
+
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        sweepExecutor.execute(this::sweepAndRelease);
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public SweepReport getLastReport() {
+        return lastReport;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(fetchExecutor, "url-sweep-fetcher", List.of()).bindTo(registry);
+    }
+
+    public void shutdown() {
+        sweepExecutor.shutdownNow();
+        writeExecutor.shutdownNow();
+        fetchExecutor.shutdownNow();
+    }
+
+    public SweepReport sweep() throws InterruptedException, ExecutionException {
+        Instant startedAt = Instant.now();
+        long started = System.nanoTime();
+        Sweep sweep = new Sweep();
+        AtomicBoolean fetching = new AtomicBoolean(true);
+        Future<Long> written = writeExecutor.submit(() -> {
+            try {
+                return write(sweep.results, fetching);
+            } catch (Exception e) {
+                sweep.cancel();
+                throw e;
+            }
+        });
+
+        long urls = 0;
+        long lastId = 0;
+        boolean listed = false;
+        try {
+            List<Url> page;
+            do {
+                page = new QUrl()
+                        .select(QUrl.Alias.id, QUrl.Alias.name, QUrl.Alias.etag, QUrl.Alias.lastModified,
+                                QUrl.Alias.lastContentHash, QUrl.Alias.timingHistogram)
+                        .id.greaterThan(lastId)
+                        .orderBy()
+                        .id.asc()
+                        .setMaxRows(batchSize)
+                        .findList();
+
+                for (Url url : page) {
+                    if (sweep.isCancelled()) {
+                        break;
+                    }
+                    lastId = url.getId();
+                    urls++;
+                    sweep.submit(url);
+                }
+            } while (page.size() == batchSize && !sweep.isCancelled());
+            listed = true;
+        } finally {
+            if (!listed) {
+                sweep.cancel();
+            }
+            // the sweep only ends, and a next one may start, once none of its fetches is left
+            sweep.finished.acquire(Math.toIntExact(urls));
+            fetching.set(false);
+        }
+        long checked = written.get();
+
+        return new SweepReport(startedAt, Duration.ofNanos(System.nanoTime() - started), urls, checked,
+                sweep.failed.get());
+    }
+
+    private long write(BlockingQueue<UrlCheck> results, AtomicBoolean fetching) throws InterruptedException {
+        long written = 0;
+        List<UrlCheck> batch = new ArrayList<>(batchSize);
+        while (fetching.get() || !results.isEmpty()) {
+            UrlCheck urlCheck = results.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (urlCheck != null) {
+                batch.add(urlCheck);
+                results.drainTo(batch, batchSize - batch.size());
+            }
+            if (batch.size() >= batchSize || urlCheck == null && !batch.isEmpty()) {
+                checker.getStore().saveAll(batch);
+                written += batch.size();
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        checker.getStore().saveAll(batch);
+        return written + batch.size();
+    }
+
+    private void sweepIfIdle() {
+        if (running.compareAndSet(false, true)) {
+            sweepAndRelease();
+        }
+    }
+
+    private void sweepAndRelease() {
+        try {
+            SweepReport report = sweep();
+            lastReport = report;
+            LOGGER.info("Checked {} of {} urls in {} ms ({} checks/sec, {} failed)", report.getChecked(),
+                    report.getUrls(), report.getDuration().toMillis(),
+                    String.format("%.1f", report.getChecksPerSecond()), report.getFailed());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.error("Url sweep failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * The fetches of one sweep. A url whose host is at its cap waits in the host's queue without
+     * holding a global permit, and the fetch that frees the host slot starts it with its own
+     * permit, so the sweep thread never blocks on a busy host while other hosts have urls ready.
+     *
+     * <p>Results wait for the writer in a bounded queue: a writer that falls behind holds up the
+     * fetches and, through their permits, the sweep thread. Once the sweep is cancelled, because
+     * the writer failed or the urls could not be listed, no new fetch starts and the urls still
+     * waiting for their host are dropped.</p>
+     */
+    private final class Sweep {
+        private final Semaphore permits = new Semaphore(concurrency);
+
+        private final Semaphore finished = new Semaphore(0);
+
+        private final Map<String, HostQueue> hosts = new HashMap<>();
+
+        private final BlockingQueue<UrlCheck> results = new ArrayBlockingQueue<>(batchSize * 2);
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private volatile boolean cancelled;
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        void submit(Url url) throws InterruptedException {
+            HostQueue host = hosts.computeIfAbsent(UrlChecker.hostOf(url), key -> new HostQueue());
+            permits.acquire();
+            if (cancelled) {
+                permits.release();
+                finished.release();
+            } else if (host.start(url)) {
+                fetch(url, host);
+            } else {
+                permits.release();
+            }
+        }
+
+        private void fetch(Url url, HostQueue host) {
+            CompletableFuture.supplyAsync(() -> checker.fetch(url), fetchExecutor)
+                    .whenComplete((urlCheck, error) -> {
+                        if (error != null) {
+                            failed.incrementAndGet();
+                        } else {
+                            deliver(urlCheck);
+                        }
+                        Url next = host.next();
+                        while (next != null && cancelled) {
+                            finished.release();
+                            next = host.next();
+                        }
+                        if (next != null) {
+                            fetch(next, host);
+                        } else {
+                            permits.release();
+                        }
+                        finished.release();
+                    });
+        }
+
+        private void deliver(UrlCheck urlCheck) {
+            try {
+                // while the writer is behind, this fetch thread waits for room
+                boolean delivered = false;
+                while (!delivered && !cancelled) {
+                    delivered = results.offer(urlCheck, POLL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final class HostQueue {
+        private final Deque<Url> waiting = new ArrayDeque<>();
+
+        private int fetching;
+
+        /**
+         * Takes a slot of the host for the url, or queues the url if there is none.
+         */
+        synchronized boolean start(Url url) {
+            if (fetching < perHostConcurrency) {
+                fetching++;
+                return true;
+            }
+            waiting.add(url);
+            return false;
+        }
+
+        /**
+         * Hands the slot of a finished fetch to the next waiting url, or frees it if there is none.
+         */
+        synchronized Url next() {
+            Url url = waiting.poll();
+            if (url == null) {
+                fetching--;
+            }
+            return url;
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,354 @@
+package hexlet.code.checker;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.HttpClientConnectionOperator;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The http client shared by all checks: one connection pool with keep-alive, a dns cache,
+ * redirect and timeout limits, and a cap on how much of each body is read.
+ */
+public final class CheckerHttpClient implements MeterBinder {
+
+    static final String USER_AGENT = "page-analyzer";
+
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private static final int DRAIN_BUFFER_SIZE = 8192;
+
+    private static final String OTHER_HOSTS = "other";
+
+    private final Settings settings;
+
+    private final CachingDnsResolver dnsResolver;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient client;
+
+    private final ScheduledThreadPoolExecutor timeouts;
+
+    private volatile MeterRegistry registry = new CompositeMeterRegistry();
+
+    // fetch timers by host and status class, for the first maxTimedHosts hosts and "other"
+    private final Map<String, Timer> fetchTimers = new ConcurrentHashMap<>();
+
+    private final Set<String> timedHosts = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder bodiesDrained = new LongAdder();
+
+    private final LongAdder bodiesDropped = new LongAdder();
+
+    public CheckerHttpClient(Settings settings) {
+        this.settings = settings;
+        this.dnsResolver = new CachingDnsResolver(settings.dnsCacheSize, settings.dnsCacheTtl.toNanos());
+
+        HttpClientConnectionOperator operator = TimedConnections.operator(TimedConnections.socketFactories(),
+                dnsResolver);
+        this.connectionManager = new PoolingHttpClientConnectionManager(operator, null,
+                settings.connectionTtl.toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(settings.maxConnections);
+        connectionManager.setDefaultMaxPerRoute(settings.maxConnectionsPerRoute);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) settings.connectTimeout.toMillis())
+                .setSocketTimeout((int) settings.readTimeout.toMillis())
+                .setConnectionRequestTimeout((int) settings.connectTimeout.toMillis())
+                .setRedirectsEnabled(settings.maxRedirects > 0)
+                .setMaxRedirects(settings.maxRedirects)
+                .setCircularRedirectsAllowed(false)
+                .setCookieSpec(CookieSpecs.IGNORE_COOKIES)
+                .build();
+        this.client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setUserAgent(USER_AGENT)
+                .disableAutomaticRetries()
+                .evictExpiredConnections()
+                .evictIdleConnections(settings.idleTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+
+        this.timeouts = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "checker-http-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timeouts.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Sends a GET request and hands the response to the reader.
+     *
+     * <p>The body stream is capped at the configured size and the whole exchange, from sending the
+     * request to the last byte read, is aborted once the total timeout has passed. When the reader
+     * stops early, a rest of at most {@code maxDrainBytes} is read and dropped so the connection
+     * can go back to the pool; a longer rest closes the connection instead. How often each
+     * happens is counted in {@link #getStats()} and {@code checker.http.bodies}.</p>
+     *
+     * <p>The phases of the exchange are recorded in {@code timings} as they complete.</p>
+     */
+    public <T> T get(String uri, Map<String, String> headers, FetchTimings timings, ResponseReader<T> reader)
+            throws IOException {
+        return get(uri, headers, timings, reader, true);
+    }
+
+    /**
+     * Sends a GET request like {@link #get} but leaves it out of the {@code checker.fetch} timers,
+     * which are meant for the sites the app checks, not for its own warm-up requests.
+     */
+    <T> T getUntimed(String uri, ResponseReader<T> reader) throws IOException {
+        return get(uri, Map.of(), new FetchTimings(), reader, false);
+    }
+
+    private <T> T get(String uri, Map<String, String> headers, FetchTimings timings, ResponseReader<T> reader,
+                      boolean timed) throws IOException {
+        HttpGet request = new HttpGet(uri);
+        headers.forEach(request::setHeader);
+        HttpClientContext context = HttpClientContext.create();
+        timings.attachTo(context);
+
+        long start = System.nanoTime();
+        long deadline = start + settings.totalTimeout.toNanos();
+        ScheduledFuture<?> abort = timeouts.schedule(request::abort, settings.totalTimeout.toNanos(),
+                TimeUnit.NANOSECONDS);
+        String outcome = "error";
+        try (CloseableHttpResponse response = client.execute(request, context)) {
+            long responseStart = System.nanoTime();
+            timings.responseStarted(start, responseStart, context.getRedirectLocations());
+            outcome = statusClass(response.getStatusLine().getStatusCode());
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                T result = reader.read(response, InputStream.nullInputStream());
+                timings.bodyRead(responseStart, System.nanoTime(), 0);
+                return result;
+            }
+            InputStream content = entity.getContent();
+            BoundedInputStream body = new BoundedInputStream(content, settings.maxBodyBytes, deadline);
+            T result = reader.read(response, body);
+            timings.bodyRead(responseStart, System.nanoTime(), Math.max(entity.getContentLength(), body.getCount()));
+            drain(content, deadline);
+            return result;
+        } finally {
+            abort.cancel(false);
+            if (timed) {
+                fetchTimer(String.valueOf(request.getURI().getHost()), outcome)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of a body up to its end, which hands the connection back to the pool, unless
+     * that is more than {@code maxDrainBytes} or takes past the deadline.
+     */
+    private void drain(InputStream content, long deadline) {
+        byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        long drained = 0;
+        try {
+            while (drained <= settings.maxDrainBytes && System.nanoTime() - deadline < 0) {
+                int read = content.read(buffer);
+                if (read == -1) {
+                    bodiesDrained.increment();
+                    return;
+                }
+                drained += read;
+            }
+        } catch (IOException e) {
+            // the connection is closed with the response
+        }
+        bodiesDropped.increment();
+    }
+
+    /**
+     * Hosts past the first {@code maxTimedHosts} share the {@code other} tag, so the number of
+     * timers stays bounded however many sites are checked.
+     */
+    private Timer fetchTimer(String host, String outcome) {
+        String tag = timedHosts.contains(host)
+                || timedHosts.size() < settings.maxTimedHosts && timedHosts.add(host) ? host : OTHER_HOSTS;
+        return fetchTimers.computeIfAbsent(tag + " " + outcome, key -> Timer.builder("checker.fetch")
+                .tag("host", tag)
+                .tag("status", outcome)
+                .register(registry));
+    }
+
+    private static String statusClass(int status) {
+        return STATUS_CLASSES[Math.min(Math.max(status / 100 - 1, 0), STATUS_CLASSES.length - 1)];
+    }
+
+    public Map<String, Object> getStats() {
+        PoolStats pool = connectionManager.getTotalStats();
+        return Map.of(
+                "connectionsLeased", pool.getLeased(),
+                "connectionsAvailable", pool.getAvailable(),
+                "connectionsPending", pool.getPending(),
+                "connectionsMax", pool.getMax(),
+                "bodiesDrained", bodiesDrained.sum(),
+                "bodiesDropped", bodiesDropped.sum(),
+                "dnsCacheSize", dnsResolver.size(),
+                "dnsCacheHits", dnsResolver.getHits(),
+                "dnsCacheMisses", dnsResolver.getMisses());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("checker.http.connections", connectionManager, pool -> pool.getTotalStats().getLeased())
+                .tag("state", "leased")
+                .register(meterRegistry);
+        Gauge.builder("checker.http.connections", connectionManager, pool -> pool.getTotalStats().getAvailable())
+                .tag("state", "available")
+                .register(meterRegistry);
+        Gauge.builder("checker.http.connections", connectionManager, pool -> pool.getTotalStats().getPending())
+                .tag("state", "pending")
+                .register(meterRegistry);
+        FunctionCounter.builder("checker.http.bodies", bodiesDrained, LongAdder::sum)
+                .tag("connection", "reused")
+                .register(meterRegistry);
+        FunctionCounter.builder("checker.http.bodies", bodiesDropped, LongAdder::sum)
+                .tag("connection", "closed")
+                .register(meterRegistry);
+        Gauge.builder("checker.dns.cache.size", dnsResolver, CachingDnsResolver::size).register(meterRegistry);
+        FunctionCounter.builder("checker.dns.cache.requests", dnsResolver, CachingDnsResolver::getHits)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("checker.dns.cache.requests", dnsResolver, CachingDnsResolver::getMisses)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.registry = meterRegistry;
+        fetchTimers.clear();
+    }
+
+    public void shutdown() {
+        timeouts.shutdownNow();
+        try {
+            client.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ResponseReader<T> {
+        T read(HttpResponse response, InputStream body) throws IOException;
+    }
+
+    public static final class Settings {
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        private Duration readTimeout = Duration.ofSeconds(10);
+
+        private Duration totalTimeout = Duration.ofSeconds(30);
+
+        private Duration idleTimeout = Duration.ofSeconds(30);
+
+        private Duration connectionTtl = Duration.ofMinutes(5);
+
+        private int maxConnections = 200;
+
+        private int maxConnectionsPerRoute = 4;
+
+        private int maxRedirects = 5;
+
+        private long maxBodyBytes = 2_097_152;
+
+        private long maxDrainBytes = 65_536;
+
+        private int maxTimedHosts = 200;
+
+        private int dnsCacheSize = 10_000;
+
+        private Duration dnsCacheTtl = Duration.ofMinutes(5);
+
+        public Settings connectTimeout(Duration value) {
+            this.connectTimeout = value;
+            return this;
+        }
+
+        public Settings readTimeout(Duration value) {
+            this.readTimeout = value;
+            return this;
+        }
+
+        public Settings totalTimeout(Duration value) {
+            this.totalTimeout = value;
+            return this;
+        }
+
+        public Settings idleTimeout(Duration value) {
+            this.idleTimeout = value;
+            return this;
+        }
+
+        public Settings connectionTtl(Duration value) {
+            this.connectionTtl = value;
+            return this;
+        }
+
+        public Settings maxConnections(int value) {
+            this.maxConnections = value;
+            return this;
+        }
+
+        public Settings maxConnectionsPerRoute(int value) {
+            this.maxConnectionsPerRoute = value;
+            return this;
+        }
+
+        public Settings maxRedirects(int value) {
+            this.maxRedirects = value;
+            return this;
+        }
+
+        public Settings maxBodyBytes(long value) {
+            this.maxBodyBytes = value;
+            return this;
+        }
+
+        public Settings maxDrainBytes(long value) {
+            this.maxDrainBytes = value;
+            return this;
+        }
+
+        public Settings maxTimedHosts(int value) {
+            this.maxTimedHosts = value;
+            return this;
+        }
+
+        public Settings dnsCacheSize(int value) {
+            this.dnsCacheSize = value;
+            return this;
+        }
+
+        public Settings dnsCacheTtl(Duration value) {
+            this.dnsCacheTtl = value;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package hexlet.code.checker;
+
+public final class ExtractedPage {
+    private final String title;
+
+    private final String h1;
+
+    private final String description;
+
+    public ExtractedPage(String title, String h1, String description) {
+        this.title = title;
+        this.h1 = h1;
+        this.description = description;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getH1() {
+        return h1;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
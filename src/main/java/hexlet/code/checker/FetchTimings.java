@@ -0,0 +1,118 @@
+package hexlet.code.checker;
+
+import org.apache.http.protocol.HttpContext;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where the time of one fetch went. The connection phases add up over redirects and stay
+ * {@code null} when every request went over a pooled connection; time to first byte runs from
+ * the start of the request, connection setup and redirects included, to the final response
+ * headers, and download covers the part of the body the check read.
+ */
+public final class FetchTimings {
+    private static final String ATTRIBUTE = FetchTimings.class.getName();
+
+    private long dnsNanos = -1;
+
+    private long connectNanos = -1;
+
+    private long tlsNanos = -1;
+
+    private long ttfbNanos = -1;
+
+    private long downloadNanos = -1;
+
+    private long responseBytes = -1;
+
+    private List<URI> redirects = List.of();
+
+    private long mark;
+
+    private boolean resolving;
+
+    static FetchTimings of(HttpContext context) {
+        return (FetchTimings) context.getAttribute(ATTRIBUTE);
+    }
+
+    void attachTo(HttpContext context) {
+        context.setAttribute(ATTRIBUTE, this);
+    }
+
+    void connectionStarted() {
+        mark = System.nanoTime();
+        resolving = true;
+    }
+
+    void socketConnecting() {
+        long now = System.nanoTime();
+        if (resolving) {
+            dnsNanos = add(dnsNanos, now - mark);
+            resolving = false;
+        } else {
+            // a previous address of the host did not accept the connection
+            connectNanos = add(connectNanos, now - mark);
+        }
+        mark = now;
+    }
+
+    void socketConnected() {
+        long now = System.nanoTime();
+        connectNanos = add(connectNanos, now - mark);
+        mark = now;
+    }
+
+    void handshakeDone() {
+        long now = System.nanoTime();
+        tlsNanos = add(tlsNanos, now - mark);
+        mark = now;
+    }
+
+    void responseStarted(long requestStart, long now, List<URI> redirectLocations) {
+        ttfbNanos = now - requestStart;
+        redirects = redirectLocations != null ? List.copyOf(redirectLocations) : List.of();
+    }
+
+    void bodyRead(long responseStart, long now, long bytes) {
+        downloadNanos = now - responseStart;
+        responseBytes = bytes;
+    }
+
+    public Integer getDnsMillis() {
+        return millis(dnsNanos);
+    }
+
+    public Integer getConnectMillis() {
+        return millis(connectNanos);
+    }
+
+    public Integer getTlsMillis() {
+        return millis(tlsNanos);
+    }
+
+    public Integer getTtfbMillis() {
+        return millis(ttfbNanos);
+    }
+
+    public Integer getDownloadMillis() {
+        return millis(downloadNanos);
+    }
+
+    public Integer getResponseBytes() {
+        return responseBytes >= 0 ? (int) Math.min(responseBytes, Integer.MAX_VALUE) : null;
+    }
+
+    public List<URI> getRedirects() {
+        return redirects;
+    }
+
+    private static long add(long total, long nanos) {
+        return Math.max(total, 0) + nanos;
+    }
+
+    private static Integer millis(long nanos) {
+        return nanos >= 0 ? (int) TimeUnit.NANOSECONDS.toMillis(nanos) : null;
+    }
+}
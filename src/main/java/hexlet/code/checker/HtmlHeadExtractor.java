@@ -0,0 +1,406 @@
+package hexlet.code.checker;
+
+import org.jsoup.internal.StringUtil;
+import org.jsoup.parser.Parser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pulls the title, the first h1 and the meta description out of an html stream
+ * without building a document.
+ *
+ * <p>The stream is tokenized tag by tag and reading stops as soon as all three values
+ * are known. A title or description missing from the head is taken as empty once the head
+ * ends, and the h1 is looked for only up to {@code </body>} and within
+ * {@value #MAX_H1_SEARCH_CHARS} characters of the end of the head, so for most pages reading
+ * stops within the first few kilobytes even when a field is missing.</p>
+ */
+public final class HtmlHeadExtractor {
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final int SNIFF_SIZE = 1024;
+
+    private static final int MAX_TAG_LENGTH = 8192;
+
+    private static final int MAX_TITLE_LENGTH = 255;
+
+    private static final int MAX_DESCRIPTION_LENGTH = 4096;
+
+    private static final int MAX_H1_SEARCH_CHARS = 64 * 1024;
+
+    private static final Set<String> RAW_TEXT_TAGS = Set.of("script", "style", "textarea", "noscript");
+
+    private static final Pattern CHARSET = Pattern.compile("charset\\s*=\\s*[\"']?([\\w.:-]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern META_CHARSET = Pattern.compile("<meta[^>]+charset\\s*=\\s*[\"']?([\\w.:-]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int position;
+
+    private int limit;
+
+    private long charsRead;
+
+    private long h1SearchEnd = Long.MAX_VALUE;
+
+    private String title;
+
+    private String h1;
+
+    private String description;
+
+    private HtmlHeadExtractor(Reader reader) {
+        this.reader = reader;
+    }
+
+    public static ExtractedPage extract(InputStream body, String contentType) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(body, SNIFF_SIZE);
+        Charset charset = detectCharset(in, contentType);
+        return extract(new InputStreamReader(in, charset));
+    }
+
+    public static ExtractedPage extract(Reader reader) throws IOException {
+        HtmlHeadExtractor extractor = new HtmlHeadExtractor(reader);
+        extractor.run();
+        return new ExtractedPage(
+                extractor.title != null ? extractor.title : "",
+                extractor.h1 != null ? extractor.h1 : "",
+                extractor.description != null ? extractor.description : "");
+    }
+
+    static Charset detectCharset(BufferedInputStream in, String contentType) throws IOException {
+        in.mark(SNIFF_SIZE);
+        byte[] head = in.readNBytes(SNIFF_SIZE);
+        in.reset();
+
+        if (head.length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            in.skip(3);
+            return StandardCharsets.UTF_8;
+        }
+        if (head.length >= 2 && ((head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF
+                || (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE)) {
+            return StandardCharsets.UTF_16;
+        }
+
+        Charset fromHeader = contentType != null ? charsetOf(CHARSET.matcher(contentType)) : null;
+        if (fromHeader != null) {
+            return fromHeader;
+        }
+        Charset fromMeta = charsetOf(META_CHARSET.matcher(new String(head, StandardCharsets.ISO_8859_1)));
+        return fromMeta != null ? fromMeta : StandardCharsets.UTF_8;
+    }
+
+    private static Charset charsetOf(Matcher matcher) {
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return Charset.forName(matcher.group(1));
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return null;
+        }
+    }
+
+    private void run() throws IOException {
+        int c;
+        while (!isComplete() && (c = read()) != -1) {
+            if (c == '<') {
+                Tag tag = readTag();
+                if (tag == null) {
+                    continue;
+                }
+                if (!tag.isEnd()) {
+                    handleStartTag(tag);
+                } else if (tag.getName().equals("head")) {
+                    endHead();
+                } else if (tag.getName().equals("body") || tag.getName().equals("html")) {
+                    endHead();
+                    h1 = h1 != null ? h1 : "";
+                }
+            }
+            if (h1 == null && charsRead > h1SearchEnd) {
+                h1 = "";
+            }
+        }
+    }
+
+    private boolean isComplete() {
+        return title != null && h1 != null && description != null;
+    }
+
+    /**
+     * The title and the description belong in the head, so whatever it did not have stays empty.
+     */
+    private void endHead() {
+        title = title != null ? title : "";
+        description = description != null ? description : "";
+        if (h1SearchEnd == Long.MAX_VALUE) {
+            h1SearchEnd = charsRead + MAX_H1_SEARCH_CHARS;
+        }
+    }
+
+    private void handleStartTag(Tag tag) throws IOException {
+        switch (tag.getName()) {
+            case "title":
+                String text = readRawText("title", MAX_TITLE_LENGTH * 2);
+                if (title == null) {
+                    title = normalize(Parser.unescapeEntities(text, false), MAX_TITLE_LENGTH);
+                }
+                break;
+            case "h1":
+                if (h1 == null) {
+                    h1 = readText("h1", MAX_TITLE_LENGTH);
+                }
+                break;
+            case "body":
+                endHead();
+                break;
+            case "meta":
+                if (description == null && "description".equalsIgnoreCase(tag.attribute("name"))) {
+                    String content = tag.attribute("content");
+                    description = content != null ? truncate(content, MAX_DESCRIPTION_LENGTH) : "";
+                }
+                break;
+            default:
+                if (RAW_TEXT_TAGS.contains(tag.getName())) {
+                    readRawText(tag.getName(), 0);
+                }
+        }
+    }
+
+    private String readText(String tagName, int maxLength) throws IOException {
+        StringBuilder text = new StringBuilder();
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<') {
+                Tag tag = readTag();
+                if (tag == null) {
+                    continue;
+                }
+                if (tag.isEnd() && tag.getName().equals(tagName)) {
+                    break;
+                }
+                if (!tag.isEnd() && RAW_TEXT_TAGS.contains(tag.getName())) {
+                    readRawText(tag.getName(), 0);
+                }
+                if (tag.getName().equals("br")) {
+                    text.append(' ');
+                }
+            } else if (text.length() < maxLength * 2) {
+                text.append((char) c);
+            }
+        }
+        return normalize(Parser.unescapeEntities(text.toString(), false), maxLength);
+    }
+
+    private String readRawText(String tagName, int maxLength) throws IOException {
+        String end = "</" + tagName;
+        StringBuilder text = new StringBuilder();
+        int matched = 0;
+        int c;
+        while ((c = read()) != -1) {
+            char lower = Character.toLowerCase((char) c);
+            if (lower == end.charAt(matched)) {
+                matched++;
+                if (matched == end.length()) {
+                    skipPast('>');
+                    break;
+                }
+                continue;
+            }
+            if (matched > 0) {
+                append(text, end.substring(0, matched), maxLength);
+                matched = lower == end.charAt(0) ? 1 : 0;
+                if (matched == 1) {
+                    continue;
+                }
+            }
+            append(text, String.valueOf((char) c), maxLength);
+        }
+        return text.toString();
+    }
+
+    private Tag readTag() throws IOException {
+        int c = read();
+        if (c == '!') {
+            if (read() == '-' && read() == '-') {
+                skipComment();
+            } else {
+                skipPast('>');
+            }
+            return null;
+        }
+        if (c == '?') {
+            skipPast('>');
+            return null;
+        }
+
+        boolean end = c == '/';
+        if (end) {
+            c = read();
+        }
+        if (c == -1 || !isLetter(c)) {
+            return null;
+        }
+
+        StringBuilder raw = new StringBuilder();
+        raw.append((char) c);
+        char quote = 0;
+        while ((c = read()) != -1) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = (char) c;
+            } else if (c == '>') {
+                break;
+            }
+            if (raw.length() < MAX_TAG_LENGTH) {
+                raw.append((char) c);
+            }
+        }
+        return new Tag(raw.toString(), end);
+    }
+
+    private void skipComment() throws IOException {
+        int dashes = 0;
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '>' && dashes >= 2) {
+                return;
+            }
+            dashes = c == '-' ? dashes + 1 : 0;
+        }
+    }
+
+    private void skipPast(char target) throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != -1 && c != target);
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        charsRead++;
+        return buffer[position++];
+    }
+
+    private static void append(StringBuilder text, String value, int maxLength) {
+        if (text.length() < maxLength) {
+            text.append(value, 0, Math.min(value.length(), maxLength - text.length()));
+        }
+    }
+
+    private static boolean isLetter(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static String normalize(String text, int maxLength) {
+        return truncate(StringUtil.normaliseWhitespace(text).trim(), maxLength);
+    }
+
+    private static String truncate(String text, int maxLength) {
+        return text.length() > maxLength ? text.substring(0, maxLength) : text;
+    }
+
+    private static final class Tag {
+        private final String raw;
+
+        private final boolean end;
+
+        private final String name;
+
+        Tag(String raw, boolean end) {
+            this.raw = raw;
+            this.end = end;
+            int nameEnd = 0;
+            while (nameEnd < raw.length() && !Character.isWhitespace(raw.charAt(nameEnd))
+                    && raw.charAt(nameEnd) != '/') {
+                nameEnd++;
+            }
+            this.name = raw.substring(0, nameEnd).toLowerCase(Locale.ROOT);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isEnd() {
+            return end;
+        }
+
+        String attribute(String attributeName) {
+            int i = name.length();
+            while (i < raw.length()) {
+                while (i < raw.length() && (Character.isWhitespace(raw.charAt(i)) || raw.charAt(i) == '/')) {
+                    i++;
+                }
+                int keyStart = i;
+                while (i < raw.length() && raw.charAt(i) != '=' && !Character.isWhitespace(raw.charAt(i))
+                        && raw.charAt(i) != '/') {
+                    i++;
+                }
+                String key = raw.substring(keyStart, i);
+                while (i < raw.length() && Character.isWhitespace(raw.charAt(i))) {
+                    i++;
+                }
+                String value = "";
+                if (i < raw.length() && raw.charAt(i) == '=') {
+                    i++;
+                    while (i < raw.length() && Character.isWhitespace(raw.charAt(i))) {
+                        i++;
+                    }
+                    int valueStart;
+                    int valueEnd;
+                    if (i < raw.length() && (raw.charAt(i) == '"' || raw.charAt(i) == '\'')) {
+                        char quote = raw.charAt(i);
+                        valueStart = ++i;
+                        while (i < raw.length() && raw.charAt(i) != quote) {
+                            i++;
+                        }
+                        valueEnd = i++;
+                    } else {
+                        valueStart = i;
+                        while (i < raw.length() && !Character.isWhitespace(raw.charAt(i))) {
+                            i++;
+                        }
+                        valueEnd = i;
+                    }
+                    value = raw.substring(valueStart, valueEnd);
+                }
+                if (key.isEmpty()) {
+                    i++;
+                } else if (key.equalsIgnoreCase(attributeName)) {
+                    return Parser.unescapeEntities(value, true);
+                }
+            }
+            return null;
+        }
+    }
+}
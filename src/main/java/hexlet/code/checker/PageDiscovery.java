@@ -0,0 +1,229 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlPage;
+import hexlet.code.domain.query.QUrlPage;
+import io.ebean.DB;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the pages of a url's site in its sitemaps and checks each of them.
+ *
+ * <p>The sitemaps that {@code robots.txt} names, or {@code /sitemap.xml} if it names none, are
+ * streamed entry by entry, following sitemap indexes up to {@code maxSitemaps} files, until
+ * {@code maxPages} pages of the same origin that {@code robots.txt} allows are found. Each page
+ * is then scheduled into the next free crawl delay slot of the site from the
+ * {@link PolitenessCache}, so no thread sits waiting for its turn, and the results are saved
+ * together once every page has been checked.</p>
+ */
+public final class PageDiscovery implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PageDiscovery.class);
+
+    private final UrlChecker checker;
+
+    private final CheckerHttpClient httpClient;
+
+    private final PolitenessCache politeness;
+
+    private final int maxPages;
+
+    private final int maxSitemaps;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Discovery checks up to {@code maxPages} pages of a site and is turned off while that is {@code 0}.
+     */
+    public PageDiscovery(UrlChecker checker, CheckerHttpClient httpClient, PolitenessCache politeness, int workers,
+                         int maxPages, int maxSitemaps) {
+        this.checker = checker;
+        this.httpClient = httpClient;
+        this.politeness = politeness;
+        this.maxPages = maxPages;
+        this.maxSitemaps = maxSitemaps;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(workers, runnable -> {
+            Thread thread = new Thread(runnable, "page-discovery-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return maxPages > 0;
+    }
+
+    public boolean isRunning(long urlId) {
+        return running.contains(urlId);
+    }
+
+    /**
+     * Starts a discovery of the url's site unless one is running already; returns whether it did.
+     */
+    public boolean submit(Url url) {
+        if (!isEnabled() || !running.add(url.getId())) {
+            return false;
+        }
+        try {
+            executor.execute(() -> discover(url.getId(), url.getOrigin()));
+        } catch (RejectedExecutionException e) {
+            running.remove(url.getId());
+            throw e;
+        }
+        return true;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "page-discovery", List.of()).bindTo(registry);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void discover(long urlId, String origin) {
+        try {
+            PolitenessCache.Site site = politeness.get(origin);
+            Set<String> locations = findPages(origin, site.getRules());
+
+            Map<String, UrlPage> existing = new QUrlPage()
+                    .url.id.equalTo(urlId)
+                    .findList()
+                    .stream()
+                    .collect(Collectors.toMap(UrlPage::getLocation, Function.identity()));
+            List<UrlPage> pages = new ArrayList<>();
+            List<CompletableFuture<Void>> checks = new ArrayList<>();
+            for (String location : locations) {
+                UrlPage page = existing.remove(location);
+                if (page == null) {
+                    page = new UrlPage(DB.reference(Url.class, urlId), location);
+                }
+                pages.add(page);
+                checks.add(schedule(page, site.reserve()));
+            }
+
+            CompletableFuture.allOf(checks.toArray(CompletableFuture[]::new))
+                    .whenComplete((result, error) -> save(urlId, pages, existing.values()));
+        } catch (Exception e) {
+            LOGGER.warn("Discovery of {} failed: {}", origin, e.getMessage());
+            running.remove(urlId);
+        }
+    }
+
+    private CompletableFuture<Void> schedule(UrlPage page, long delayNanos) {
+        CompletableFuture<Void> checked = new CompletableFuture<>();
+        executor.schedule(() -> {
+            try {
+                checker.checkPage(page);
+            } catch (RuntimeException e) {
+                page.recordFailure(e.getMessage());
+            } finally {
+                checked.complete(null);
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+        return checked;
+    }
+
+    private void save(long urlId, List<UrlPage> pages, Collection<UrlPage> removed) {
+        try {
+            checker.getStore().savePages(urlId, pages, removed);
+        } catch (Exception e) {
+            LOGGER.error("Could not save the pages of url {}", urlId, e);
+        } finally {
+            running.remove(urlId);
+        }
+    }
+
+    /**
+     * Robots.txt and the sitemaps are read right away; only the pages wait for their slots.
+     */
+    private Set<String> findPages(String origin, RobotsRules rules) {
+        Set<String> pages = new LinkedHashSet<>();
+        Deque<String> sitemaps = new ArrayDeque<>(rules.getSitemaps().isEmpty()
+                ? List.of(origin + "/sitemap.xml")
+                : rules.getSitemaps());
+        Set<String> seen = new HashSet<>();
+        while (!sitemaps.isEmpty() && seen.size() < maxSitemaps && pages.size() < maxPages) {
+            String sitemap = sitemaps.poll();
+            if (pathOf(origin, sitemap) == null || !seen.add(sitemap)) {
+                continue;
+            }
+            try {
+                httpClient.get(sitemap, Map.of(), new FetchTimings(), (response, body) -> {
+                    if (response.getStatusLine().getStatusCode() / 100 == 2) {
+                        readSitemap(sitemap, body, sitemaps::add, location -> {
+                            String path = pathOf(origin, location);
+                            if (path != null && location.length() <= UrlPage.MAX_LOCATION_LENGTH
+                                    && rules.isAllowed(path)) {
+                                pages.add(location);
+                            }
+                            return pages.size() < maxPages;
+                        });
+                    }
+                    return null;
+                });
+            } catch (IOException e) {
+                LOGGER.info("Could not read sitemap {}: {}", sitemap, e.getMessage());
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Keeps the pages read before a broken or cut off part of the file.
+     */
+    private static void readSitemap(String sitemap, InputStream body, Consumer<String> sitemaps,
+                                    Predicate<String> pages) throws IOException {
+        try {
+            SitemapReader.read(sitemap, body, sitemaps, pages);
+        } catch (XMLStreamException e) {
+            LOGGER.info("Stopped reading sitemap {}: {}", sitemap, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the path and query of a location on the origin, or {@code null} for other sites.
+     */
+    private static String pathOf(String origin, String location) {
+        if (location.equals(origin)) {
+            return "/";
+        }
+        if (!location.startsWith(origin + "/")) {
+            return null;
+        }
+        String path = location.substring(origin.length());
+        int fragment = path.indexOf('#');
+        return fragment >= 0 ? path.substring(0, fragment) : path;
+    }
+}
@@ -0,0 +1,109 @@
+package hexlet.code.checker;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code robots.txt} rules and the crawl delay of every site that page discovery visits, in
+ * a bounded LRU cache with a time to live shared by all discoveries.
+ *
+ * <p>A site's file is fetched and parsed once per time to live, however many discoveries ask
+ * for it at the same time, and the fetches of its pages are spaced by its crawl delay whichever
+ * discovery makes them. A missing file allows everything; a failing server allows nothing until
+ * the entry expires.</p>
+ */
+public final class PolitenessCache implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PolitenessCache.class);
+
+    private final CheckerHttpClient httpClient;
+
+    private final Duration defaultCrawlDelay;
+
+    private final Duration maxCrawlDelay;
+
+    private final Cache<String, Site> sites;
+
+    /**
+     * Sites that name no crawl delay are fetched {@code defaultCrawlDelay} apart, and a site's own
+     * delay is honoured up to {@code maxCrawlDelay}.
+     */
+    public PolitenessCache(CheckerHttpClient httpClient, long maxSites, Duration ttl, Duration defaultCrawlDelay,
+                           Duration maxCrawlDelay) {
+        this.httpClient = httpClient;
+        this.defaultCrawlDelay = defaultCrawlDelay;
+        this.maxCrawlDelay = maxCrawlDelay;
+        this.sites = Caffeine.newBuilder()
+                .maximumSize(maxSites)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param origin the scheme, host and port of the site, without a trailing slash
+     */
+    Site get(String origin) {
+        return sites.get(origin, this::load);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, sites, "robots");
+    }
+
+    private Site load(String origin) {
+        RobotsRules rules;
+        try {
+            rules = httpClient.get(origin + "/robots.txt", Map.of(), new FetchTimings(), (response, body) -> {
+                int status = response.getStatusLine().getStatusCode();
+                if (status / 100 == 2) {
+                    return RobotsRules.parse(body, CheckerHttpClient.USER_AGENT);
+                }
+                return status / 100 == 4 ? RobotsRules.ALLOW_ALL : RobotsRules.DISALLOW_ALL;
+            });
+        } catch (IOException e) {
+            LOGGER.info("Could not read robots.txt of {}: {}", origin, e.getMessage());
+            rules = RobotsRules.DISALLOW_ALL;
+        }
+        Duration delay = rules.getCrawlDelay() != null ? rules.getCrawlDelay() : defaultCrawlDelay;
+        return new Site(rules, (delay.compareTo(maxCrawlDelay) < 0 ? delay : maxCrawlDelay).toNanos());
+    }
+
+    static final class Site {
+        private final RobotsRules rules;
+
+        private final long crawlDelayNanos;
+
+        private final AtomicLong nextFetchAt = new AtomicLong(System.nanoTime());
+
+        Site(RobotsRules rules, long crawlDelayNanos) {
+            this.rules = rules;
+            this.crawlDelayNanos = crawlDelayNanos;
+        }
+
+        RobotsRules getRules() {
+            return rules;
+        }
+
+        /**
+         * Takes the next free fetch slot of the site and returns the nanoseconds until it starts.
+         */
+        long reserve() {
+            long now = System.nanoTime();
+            long slot = nextFetchAt.getAndAccumulate(now, (next, at) -> Math.max(next - at, 0) + at
+                    + crawlDelayNanos);
+            return Math.max(slot - now, 0);
+        }
+    }
+}
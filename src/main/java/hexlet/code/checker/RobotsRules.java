@@ -0,0 +1,214 @@
+package hexlet.code.checker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The rules of a {@code robots.txt} that apply to one user agent, after RFC 9309: the groups
+ * naming the agent, or the {@code *} groups if none does. The longest matching rule decides and
+ * {@code allow} wins a tie; patterns may use {@code *} and a trailing {@code $}.
+ *
+ * <p>The non-standard {@code crawl-delay} of the chosen groups and every {@code sitemap} line
+ * are kept as well.</p>
+ */
+final class RobotsRules {
+
+    static final RobotsRules ALLOW_ALL = new RobotsRules(List.of(), null, List.of());
+
+    static final RobotsRules DISALLOW_ALL = new RobotsRules(List.of(new Rule("/", false)), null, List.of());
+
+    private static final int MAX_LINE_LENGTH = 2000;
+
+    private final List<Rule> rules;
+
+    private final Duration crawlDelay;
+
+    private final List<String> sitemaps;
+
+    private RobotsRules(List<Rule> rules, Duration crawlDelay, List<String> sitemaps) {
+        this.rules = rules;
+        this.crawlDelay = crawlDelay;
+        this.sitemaps = sitemaps;
+    }
+
+    static RobotsRules parse(InputStream body, String userAgent) throws IOException {
+        String agent = userAgent.toLowerCase(Locale.ROOT);
+        Group named = new Group();
+        Group any = new Group();
+        List<String> sitemaps = new ArrayList<>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        // whether the current lines belong to the agent's groups, the wildcard's, or neither
+        boolean inAgents = false;
+        boolean toNamed = false;
+        boolean toAny = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0 || line.length() > MAX_LINE_LENGTH) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            if (key.equals("user-agent")) {
+                if (!inAgents) {
+                    toNamed = false;
+                    toAny = false;
+                    inAgents = true;
+                }
+                // the product token only, a version after it does not matter
+                String name = value.toLowerCase(Locale.ROOT).split("/", 2)[0].trim();
+                if (name.equals(agent)) {
+                    toNamed = true;
+                    named.matched = true;
+                }
+                toAny |= name.equals("*");
+                continue;
+            }
+            inAgents = false;
+
+            switch (key) {
+                case "sitemap":
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                    break;
+                case "allow":
+                case "disallow":
+                    // an empty disallow allows everything, which is what no rule does as well
+                    if (!value.isEmpty()) {
+                        Rule rule = new Rule(value, key.equals("allow"));
+                        named.add(toNamed, rule);
+                        any.add(toAny, rule);
+                    }
+                    break;
+                case "crawl-delay":
+                    Duration delay = delay(value);
+                    named.delay(toNamed, delay);
+                    any.delay(toAny, delay);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        Group group = named.matched ? named : any;
+        return new RobotsRules(List.copyOf(group.rules), group.crawlDelay, List.copyOf(sitemaps));
+    }
+
+    /**
+     * @param path the path and query of the page, as sent in the request line
+     */
+    boolean isAllowed(String path) {
+        if (path.equals("/robots.txt")) {
+            return true;
+        }
+        Rule decisive = null;
+        for (Rule rule : rules) {
+            if (rule.matches(path) && (decisive == null || rule.pattern.length() > decisive.pattern.length()
+                    || rule.pattern.length() == decisive.pattern.length() && rule.allow)) {
+                decisive = rule;
+            }
+        }
+        return decisive == null || decisive.allow;
+    }
+
+    /**
+     * Returns the crawl delay the site asks for, or {@code null} if it names none.
+     */
+    Duration getCrawlDelay() {
+        return crawlDelay;
+    }
+
+    List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    private static Duration delay(String value) {
+        try {
+            double seconds = Double.parseDouble(value);
+            return seconds >= 0 && seconds < Long.MAX_VALUE / 1_000_000_000L
+                    ? Duration.ofNanos((long) (seconds * 1_000_000_000L))
+                    : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final class Group {
+        private final List<Rule> rules = new ArrayList<>();
+
+        private Duration crawlDelay;
+
+        private boolean matched;
+
+        void add(boolean applies, Rule rule) {
+            if (applies) {
+                rules.add(rule);
+            }
+        }
+
+        void delay(boolean applies, Duration delay) {
+            if (applies && delay != null) {
+                crawlDelay = delay;
+            }
+        }
+    }
+
+    private static final class Rule {
+        private final String pattern;
+
+        private final boolean allow;
+
+        Rule(String pattern, boolean allow) {
+            this.pattern = pattern;
+            this.allow = allow;
+        }
+
+        /**
+         * Matches from the start of the path; {@code *} stands for any run of characters and a
+         * final {@code $} anchors the pattern at the end of the path.
+         */
+        boolean matches(String path) {
+            boolean anchored = pattern.endsWith("$");
+            int end = anchored ? pattern.length() - 1 : pattern.length();
+            int p = 0;
+            int s = 0;
+            int star = -1;
+            int resume = 0;
+            while (s < path.length()) {
+                if (p == end && !anchored) {
+                    return true;
+                }
+                if (p < end && pattern.charAt(p) == '*') {
+                    star = p++;
+                    resume = s;
+                } else if (p < end && pattern.charAt(p) == path.charAt(s)) {
+                    p++;
+                    s++;
+                } else if (star >= 0) {
+                    p = star + 1;
+                    s = ++resume;
+                } else {
+                    return false;
+                }
+            }
+            while (p < end && pattern.charAt(p) == '*') {
+                p++;
+            }
+            return p == end;
+        }
+    }
+}
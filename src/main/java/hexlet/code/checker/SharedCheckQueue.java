@@ -0,0 +1,261 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.QueuedCheck;
+import hexlet.code.domain.Url;
+import hexlet.code.domain.query.QQueuedCheck;
+import hexlet.code.domain.query.QUrl;
+import io.ebean.DB;
+import io.ebean.DuplicateKeyException;
+import io.ebean.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the background checks queued in the {@code check_job} table on this node.
+ *
+ * <p>Every node claims due jobs up to its free {@link CheckJobQueue} capacity. With
+ * {@code skipLocked} (Postgres) the claim reads {@code for update skip locked}, so nodes
+ * never wait on or take each other's rows; without it (H2) the claim locks normally,
+ * which is only safe for a single node. Claimed jobs are leased and the lease is renewed
+ * while they run. A failed check is retried with exponential backoff until
+ * {@code maxAttempts} is reached.</p>
+ */
+public final class SharedCheckQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedCheckQueue.class);
+
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    private final CheckJobQueue checkJobQueue;
+
+    private final boolean skipLocked;
+
+    private final int batchSize;
+
+    private final Duration lease;
+
+    private final int maxAttempts;
+
+    private final Duration retryDelay;
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+
+    // url ids by the id of their claimed job, for as long as the check runs
+    private final Map<Long, Long> running = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "url-check-claimer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SharedCheckQueue(CheckJobQueue checkJobQueue, boolean skipLocked, int batchSize, Duration lease,
+                            int maxAttempts, Duration retryDelay) {
+        this.checkJobQueue = checkJobQueue;
+        this.skipLocked = skipLocked;
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+    }
+
+    public void start(long pollMillis) {
+        if (pollMillis > 0) {
+            executor.scheduleWithFixedDelay(this::claimSafely, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+            long heartbeatMillis = lease.toMillis() / 3;
+            executor.scheduleAtFixedRate(this::heartbeatSafely, heartbeatMillis, heartbeatMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Hands the checks this node did not finish back to the table, due right away: claimed jobs
+     * lose their lease without counting an attempt and other checks of the given urls are queued.
+     * Interrupted checks stay among the claimed jobs, so it does not matter whether they ended
+     * before or after this runs.
+     */
+    public void requeue(Collection<Long> urlIds) {
+        Instant now = Instant.now();
+        Map<Long, Long> claimed = Map.copyOf(running);
+        if (!claimed.isEmpty()) {
+            new QQueuedCheck()
+                    .id.in(claimed.keySet())
+                    .leaseOwner.equalTo(owner)
+                    .asUpdate()
+                    .set("availableAt", now)
+                    .setNull("leaseOwner")
+                    .setRaw("attempts = attempts - 1")
+                    .update();
+        }
+
+        Set<Long> unclaimed = new HashSet<>(urlIds);
+        unclaimed.removeAll(claimed.values());
+        if (unclaimed.isEmpty()) {
+            return;
+        }
+        unclaimed.removeAll(new QQueuedCheck()
+                .select("url")
+                .url.id.in(unclaimed)
+                .findList()
+                .stream()
+                .map(job -> job.getUrl().getId())
+                .collect(Collectors.toSet()));
+        for (long urlId : unclaimed) {
+            try {
+                new QueuedCheck(DB.reference(Url.class, urlId), now).insert();
+            } catch (DuplicateKeyException e) {
+                // queued by the scheduler in the meantime
+            }
+        }
+        LOGGER.info("Requeued {} claimed and {} other unfinished checks", claimed.size(), unclaimed.size());
+    }
+
+    /**
+     * Claims due jobs and submits them to the local queue; returns how many were submitted.
+     */
+    public int claim() {
+        int limit = Math.min(batchSize, checkJobQueue.getRemainingCapacity());
+        if (limit <= 0) {
+            return 0;
+        }
+
+        Instant now = Instant.now();
+        List<QueuedCheck> jobs;
+        try (Transaction transaction = DB.beginTransaction()) {
+            QQueuedCheck query = new QQueuedCheck()
+                    .availableAt.lessOrEqualTo(now)
+                    .orderBy()
+                    .availableAt.asc()
+                    .setMaxRows(limit);
+            jobs = (skipLocked ? query.forUpdateSkipLocked() : query.forUpdate()).findList();
+            if (jobs.isEmpty()) {
+                return 0;
+            }
+            for (QueuedCheck job : jobs) {
+                job.claim(owner, now.plus(lease));
+            }
+            transaction.setBatchMode(true);
+            DB.updateAll(jobs);
+            transaction.commit();
+        }
+
+        Map<Long, Url> urls = new QUrl()
+                .select(QUrl.Alias.id, QUrl.Alias.name)
+                .id.in(jobs.stream().map(job -> job.getUrl().getId()).collect(Collectors.toList()))
+                .findList()
+                .stream()
+                .collect(Collectors.toMap(Url::getId, Function.identity()));
+
+        int submitted = 0;
+        for (QueuedCheck job : jobs) {
+            Url url = urls.get(job.getUrl().getId());
+            if (url != null && submit(job, url)) {
+                submitted++;
+            }
+        }
+        return submitted;
+    }
+
+    private boolean submit(QueuedCheck job, Url url) {
+        running.put(job.getId(), url.getId());
+        try {
+            CheckJob checkJob = checkJobQueue.submit(url);
+            checkJob.getCompletion().whenComplete((status, error) -> finish(job, checkJob));
+            return true;
+        } catch (RejectedExecutionException e) {
+            running.remove(job.getId());
+            release(job.getId(), Instant.now().plus(retryDelay), e.getMessage(), false);
+            return false;
+        }
+    }
+
+    private void finish(QueuedCheck job, CheckJob checkJob) {
+        if (checkJob.isInterrupted()) {
+            // cut off by a drain: requeue hands the job back as it was
+            return;
+        }
+        running.remove(job.getId());
+        try {
+            if (checkJob.getStatus() == CheckStatus.DONE || job.getAttempts() >= maxAttempts) {
+                if (checkJob.getStatus() != CheckStatus.DONE) {
+                    LOGGER.warn("Giving up on url {} after {} attempts: {}", checkJob.getUrlId(), job.getAttempts(),
+                            checkJob.getError());
+                }
+                new QQueuedCheck()
+                        .id.equalTo(job.getId())
+                        .leaseOwner.equalTo(owner)
+                        .delete();
+            } else {
+                release(job.getId(), Instant.now().plus(backoff(job.getAttempts())), checkJob.getError(), true);
+            }
+        } catch (Exception e) {
+            // The lease runs out and the job is picked up again.
+            LOGGER.error("Could not finish queued check {}", job.getId(), e);
+        }
+    }
+
+    private void release(long jobId, Instant retryAt, String error, boolean countAttempt) {
+        QueuedCheck job = new QQueuedCheck()
+                .id.equalTo(jobId)
+                .leaseOwner.equalTo(owner)
+                .findOne();
+        if (job != null) {
+            job.release(retryAt, error, countAttempt);
+            job.update();
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        long base = retryDelay.toMillis() << Math.min(attempts - 1, MAX_BACKOFF_SHIFT);
+        return Duration.ofMillis(base + ThreadLocalRandom.current().nextLong(base / 2 + 1));
+    }
+
+    private void heartbeat() {
+        if (running.isEmpty()) {
+            return;
+        }
+        new QQueuedCheck()
+                .id.in(running.keySet())
+                .leaseOwner.equalTo(owner)
+                .asUpdate()
+                .set("availableAt", Instant.now().plus(lease))
+                .update();
+    }
+
+    private void claimSafely() {
+        try {
+            claim();
+        } catch (Exception e) {
+            LOGGER.error("Claiming queued checks failed", e);
+        }
+    }
+
+    private void heartbeatSafely() {
+        try {
+            heartbeat();
+        } catch (Exception e) {
+            LOGGER.error("Renewing check leases failed", e);
+        }
+    }
+}
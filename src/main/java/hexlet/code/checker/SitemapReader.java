@@ -0,0 +1,72 @@
+package hexlet.code.checker;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the {@code <loc>} entries of a sitemap or sitemap index as they stream in, so memory
+ * stays flat whatever the size of the file; reading stops as soon as the caller has enough.
+ */
+final class SitemapReader {
+
+    private static final XMLInputFactory FACTORY = factory();
+
+    private SitemapReader() {
+    }
+
+    /**
+     * Reads the sitemap at {@code location}, unpacking it first if its name ends in {@code .gz}.
+     */
+    static void read(String location, InputStream body, Consumer<String> sitemaps, Predicate<String> pages)
+            throws IOException, XMLStreamException {
+        read(location.endsWith(".gz") ? new GZIPInputStream(body) : body, sitemaps, pages);
+    }
+
+    /**
+     * Passes the pages of a {@code <urlset>} to {@code pages}, which returns {@code false} once it
+     * takes no more, and the sitemaps of a {@code <sitemapindex>} to {@code sitemaps}.
+     */
+    static void read(InputStream body, Consumer<String> sitemaps, Predicate<String> pages)
+            throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(body);
+        try {
+            String entry = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String name = reader.getLocalName();
+                if (name.equals("url") || name.equals("sitemap")) {
+                    entry = name;
+                } else if (name.equals("loc") && entry != null) {
+                    String location = reader.getElementText().trim();
+                    if (entry.equals("sitemap")) {
+                        sitemaps.accept(location);
+                    } else if (!pages.test(location)) {
+                        return;
+                    }
+                    entry = null;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static XMLInputFactory factory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // a sitemap is data from a foreign site: no doctype, no external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
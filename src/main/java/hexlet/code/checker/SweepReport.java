@@ -0,0 +1,49 @@
+package hexlet.code.checker;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public final class SweepReport {
+    private final Instant startedAt;
+
+    private final Duration duration;
+
+    private final long urls;
+
+    private final long checked;
+
+    private final long failed;
+
+    public SweepReport(Instant startedAt, Duration duration, long urls, long checked, long failed) {
+        this.startedAt = startedAt;
+        this.duration = duration;
+        this.urls = urls;
+        this.checked = checked;
+        this.failed = failed;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public long getUrls() {
+        return urls;
+    }
+
+    public long getChecked() {
+        return checked;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public double getChecksPerSecond() {
+        long millis = Math.max(duration.toMillis(), 1);
+        return checked * 1000.0 / millis;
+    }
+}
@@ -0,0 +1,107 @@
+package hexlet.code.checker;
+
+import org.apache.http.HttpHost;
+import org.apache.http.config.Lookup;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpClientConnectionOperator;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.DefaultHttpClientConnectionOperator;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Connection operator and socket factories that report the dns, connect and tls phases of new
+ * connections to the {@link FetchTimings} of the request. All of it runs on the thread that
+ * executes the request, between the pool lease and the first byte written.
+ */
+final class TimedConnections {
+
+    private TimedConnections() {
+    }
+
+    static Lookup<ConnectionSocketFactory> socketFactories() {
+        return RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", new PlainSocketFactory())
+                .register("https", new SslSocketFactory())
+                .build();
+    }
+
+    static HttpClientConnectionOperator operator(Lookup<ConnectionSocketFactory> socketFactories,
+                                                 DnsResolver dnsResolver) {
+        return new Operator(socketFactories, dnsResolver);
+    }
+
+    private static final class Operator extends DefaultHttpClientConnectionOperator {
+        Operator(Lookup<ConnectionSocketFactory> socketFactories, DnsResolver dnsResolver) {
+            super(socketFactories, null, dnsResolver);
+        }
+
+        @Override
+        public void connect(ManagedHttpClientConnection conn, HttpHost host, InetSocketAddress localAddress,
+                            int connectTimeout, SocketConfig socketConfig, HttpContext context) throws IOException {
+            FetchTimings timings = FetchTimings.of(context);
+            if (timings != null) {
+                timings.connectionStarted();
+            }
+            super.connect(conn, host, localAddress, connectTimeout, socketConfig, context);
+        }
+    }
+
+    private static final class PlainSocketFactory extends PlainConnectionSocketFactory {
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                                    InetSocketAddress localAddress, HttpContext context) throws IOException {
+            FetchTimings timings = FetchTimings.of(context);
+            if (timings != null) {
+                timings.socketConnecting();
+            }
+            Socket connected = super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            if (timings != null) {
+                timings.socketConnected();
+            }
+            return connected;
+        }
+    }
+
+    private static final class SslSocketFactory extends SSLConnectionSocketFactory {
+        SslSocketFactory() {
+            super(SSLContexts.createDefault(), getDefaultHostnameVerifier());
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                                    InetSocketAddress localAddress, HttpContext context) throws IOException {
+            FetchTimings timings = FetchTimings.of(context);
+            if (timings != null) {
+                timings.socketConnecting();
+            }
+            return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        }
+
+        /**
+         * Called by {@link #connectSocket} once the tcp connection is up; the handshake happens in here.
+         */
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+                throws IOException {
+            FetchTimings timings = FetchTimings.of(context);
+            if (timings != null) {
+                timings.socketConnected();
+            }
+            Socket layered = super.createLayeredSocket(socket, target, port, context);
+            if (timings != null) {
+                timings.handshakeDone();
+            }
+            return layered;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.CheckContent;
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.UrlPage;
+import hexlet.code.domain.query.QUrlCheck;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class UrlChecker {
+
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private static final int MAX_VALIDATOR_LENGTH = 255;
+
+    private final CheckStore store;
+
+    private final CheckerHttpClient httpClient;
+
+    public UrlChecker(CheckStore store, CheckerHttpClient httpClient) {
+        this.store = store;
+        this.httpClient = httpClient;
+    }
+
+    public CheckStore getStore() {
+        return store;
+    }
+
+    public UrlCheck check(Url url) {
+        UrlCheck urlCheck = fetch(url);
+        store.save(urlCheck);
+        return urlCheck;
+    }
+
+    public UrlCheck fetch(Url url) {
+        return fetch(url, true);
+    }
+
+    /**
+     * Fetches the uri the way a check does, without storing anything or recording fetch metrics,
+     * so the http client, the page extractor and whatever serves the uri are warmed up by the first
+     * real check.
+     */
+    public void warmUp(String uri, int times) {
+        for (int i = 0; i < times; i++) {
+            try {
+                httpClient.getUntimed(uri, UrlChecker::read);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Checks a page that discovery found on the site of a url, through the same client and
+     * extractor as a check of the url itself but without validators. A failed fetch is recorded
+     * on the page rather than thrown.
+     */
+    public void checkPage(UrlPage page) {
+        FetchTimings timings = new FetchTimings();
+        Fetched fetched;
+        try {
+            fetched = httpClient.get(page.getLocation(), Map.of(), timings, UrlChecker::read);
+        } catch (IOException e) {
+            page.recordFailure(e.getMessage());
+            return;
+        }
+        ExtractedPage extracted = fetched.page;
+        Integer ttfb = timings.getTtfbMillis();
+        Integer download = timings.getDownloadMillis();
+        page.recordCheck(fetched.statusCode,
+                new CheckContent(extracted.getTitle(), extracted.getH1(), extracted.getDescription()),
+                ttfb != null && download != null ? ttfb + download : null);
+    }
+
+    private UrlCheck fetch(Url url, boolean conditional) {
+        Map<String, String> headers = new HashMap<>();
+        if (conditional && url.getEtag() != null) {
+            headers.put("If-None-Match", url.getEtag());
+        }
+        if (conditional && url.getLastModified() != null) {
+            headers.put("If-Modified-Since", url.getLastModified());
+        }
+
+        Fetched fetched;
+        FetchTimings timings = new FetchTimings();
+        try {
+            fetched = httpClient.get(url.getName(), headers, timings, UrlChecker::read);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int statusCode = fetched.statusCode;
+        if (statusCode == HTTP_NOT_MODIFIED) {
+            UrlCheck previous = findLatestCheck(url);
+            return previous != null ? timed(copyOf(previous, statusCode, url), timings) : fetch(url, false);
+        }
+
+        if (statusCode / 100 == 2) {
+            url.updateValidators(fetched.etag, fetched.lastModified);
+        }
+
+        ExtractedPage page = fetched.page;
+        return timed(new UrlCheck(statusCode, page.getTitle(), page.getH1(), page.getDescription(), url), timings);
+    }
+
+    private static UrlCheck timed(UrlCheck urlCheck, FetchTimings timings) {
+        urlCheck.recordTimings(timings.getDnsMillis(), timings.getConnectMillis(), timings.getTlsMillis(),
+                timings.getTtfbMillis(), timings.getDownloadMillis(), timings.getResponseBytes(),
+                timings.getRedirects());
+        return urlCheck;
+    }
+
+    private static Fetched read(HttpResponse response, InputStream content) throws IOException {
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode == HTTP_NOT_MODIFIED) {
+            return new Fetched(statusCode, null, null, null);
+        }
+
+        // The body is deliberately not closed: the client reads a short rest of it to keep the
+        // connection, and drops the connection rather than read a long one.
+        ExtractedPage page = HtmlHeadExtractor.extract(content, header(response, "Content-Type"));
+
+        String etag = validator(header(response, "ETag"));
+        String lastModified = validator(header(response, "Last-Modified"));
+        return new Fetched(statusCode, etag, lastModified, page);
+    }
+
+    private static String header(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    private static UrlCheck findLatestCheck(Url url) {
+        return new QUrlCheck()
+                .url.id.equalTo(url.getId())
+                .orderBy()
+                .id.desc()
+                .setMaxRows(1)
+                .findOne();
+    }
+
+    private static UrlCheck copyOf(UrlCheck previous, int statusCode, Url url) {
+        return new UrlCheck(statusCode, previous.getContent(), url);
+    }
+
+    private static String validator(String value) {
+        return value == null || value.isBlank() || value.length() > MAX_VALIDATOR_LENGTH ? null : value;
+    }
+
+    static String hostOf(Url url) {
+        String host = URI.create(url.getName()).getHost();
+        return host != null ? host.toLowerCase() : url.getName();
+    }
+
+    private static final class Fetched {
+        private final int statusCode;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private final ExtractedPage page;
+
+        Fetched(int statusCode, String etag, String lastModified, ExtractedPage page) {
+            this.statusCode = statusCode;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.page = page;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package hexlet.code.controllers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import hexlet.code.checker.CheckJob;
+import hexlet.code.checker.CheckJobQueue;
+import hexlet.code.checker.CheckScheduler;
+import hexlet.code.domain.Replica;
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.UrlNormalizer;
+import hexlet.code.domain.query.QUrl;
+import hexlet.code.domain.query.QUrlCheck;
+import io.ebean.DB;
+import io.ebean.Transaction;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.NotFoundResponse;
+
+import javax.persistence.PersistenceException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * JSON api under {@code /api/v1}. Lists are streamed as NDJSON, one object per line, straight
+ * from a cursor over the selected columns; a client pages on by passing the id of the last
+ * line as {@code after} (urls) or {@code before} (checks).
+ */
+public final class ApiController {
+
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private static final int DEFAULT_LIMIT = 1000;
+
+    private static final int MAX_LIMIT = 10_000;
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private static final String CHECK_COLUMNS = "statusCode, changed, dnsMillis, connectMillis, tlsMillis, "
+            + "ttfbMillis, downloadMillis, responseBytes, redirectChain, createdAt";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public static Handler createUrls = ctx -> {
+        List<String> names = new ArrayList<>();
+        for (JsonNode name : array(ctx, "urls")) {
+            names.add(name.asText());
+        }
+
+        Map<String, Url> newUrls = new LinkedHashMap<>();
+        List<String> origins = new ArrayList<>(names.size());
+        for (String name : names) {
+            String origin = null;
+            try {
+                URL url = new URL(name);
+                origin = UrlNormalizer.normalize(url);
+                newUrls.putIfAbsent(origin, new Url(UrlController.siteName(url), origin));
+            } catch (MalformedURLException e) {
+                // reported as invalid below
+            }
+            origins.add(origin);
+        }
+
+        Map<String, Url> existing = newUrls.isEmpty() ? new LinkedHashMap<>() : new QUrl()
+                .select(QUrl.Alias.id, QUrl.Alias.name, QUrl.Alias.origin)
+                .origin.in(newUrls.keySet())
+                .findList()
+                .stream()
+                .collect(Collectors.toMap(Url::getOrigin, Function.identity()));
+        newUrls.keySet().removeAll(existing.keySet());
+        insertAll(ctx, newUrls, existing);
+
+        List<Map<String, Object>> results = new ArrayList<>(names.size());
+        Set<String> reported = new HashSet<>();
+        for (int i = 0; i < names.size(); i++) {
+            String origin = origins.get(i);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("url", names.get(i));
+            if (origin == null) {
+                result.put("status", "invalid");
+            } else {
+                Url url = newUrls.containsKey(origin) ? newUrls.get(origin) : existing.get(origin);
+                result.put("id", url.getId());
+                result.put("status", newUrls.containsKey(origin) && reported.add(origin) ? "created" : "exists");
+            }
+            results.add(result);
+        }
+
+        ctx.status(newUrls.isEmpty() ? 200 : 201);
+        ctx.json(Map.of("results", results));
+    };
+
+    public static Handler checkUrls = ctx -> {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode id : array(ctx, "ids")) {
+            ids.add(id.asLong());
+        }
+
+        Map<Long, Url> urls = ids.isEmpty() ? Map.of() : new QUrl()
+                .select(QUrl.Alias.id, QUrl.Alias.name)
+                .id.in(ids)
+                .findList()
+                .stream()
+                .collect(Collectors.toMap(Url::getId, Function.identity()));
+
+        CheckJobQueue checkJobQueue = ctx.appAttribute(CheckJobQueue.class);
+        List<Map<String, Object>> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", id);
+            Url url = urls.get(id);
+            if (url == null) {
+                result.put("status", "NOT_FOUND");
+            } else {
+                try {
+                    CheckJob job = checkJobQueue.submit(url);
+                    result.put("status", job.getStatus());
+                } catch (RejectedExecutionException e) {
+                    result.put("status", "REJECTED");
+                }
+            }
+            results.add(result);
+        }
+
+        ctx.status(202);
+        ctx.json(Map.of("results", results));
+    };
+
+    public static Handler listUrls = ctx -> {
+        long after = ctx.queryParamAsClass("after", Long.class).getOrDefault(0L);
+        int limit = limit(ctx);
+
+        stream(ctx, generator -> new QUrl(Replica.get())
+                .select(QUrl.Alias.id, QUrl.Alias.name, QUrl.Alias.createdAt, QUrl.Alias.lastCheckAt,
+                        QUrl.Alias.lastStatusCode)
+                .id.greaterThan(after)
+                .orderBy()
+                .id.asc()
+                .setMaxRows(limit)
+                .findEach(url -> write(generator, url)));
+    };
+
+    public static Handler showUrl = ctx -> {
+        long id = ctx.pathParamAsClass("id", Long.class).get();
+        Url url = ctx.appAttribute(PageCache.class).getUrl(id);
+
+        if (url == null) {
+            throw new NotFoundResponse();
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", url.getId());
+        body.put("name", url.getName());
+        body.put("createdAt", toString(url.getCreatedAt()));
+        body.put("lastCheckAt", toString(url.getLastCheckAt()));
+        body.put("lastStatusCode", url.getLastStatusCode());
+        body.put("checkIntervalMinutes", url.getCheckIntervalMinutes());
+        body.put("p50Millis", url.getP50Millis());
+        body.put("p95Millis", url.getP95Millis());
+        ctx.json(body);
+    };
+
+    public static Handler listChecks = ctx -> {
+        long id = ctx.pathParamAsClass("id", Long.class).get();
+        Long before = ctx.queryParamAsClass("before", Long.class).getOrDefault(null);
+        int limit = limit(ctx);
+
+        if (ctx.appAttribute(PageCache.class).getUrl(id) == null) {
+            throw new NotFoundResponse();
+        }
+
+        QUrlCheck query = new QUrlCheck(Replica.get())
+                .select(CHECK_COLUMNS)
+                .content.fetch()
+                .url.id.equalTo(id);
+        if (before != null) {
+            query.id.lessThan(before);
+        }
+        stream(ctx, generator -> query
+                .orderBy()
+                .id.desc()
+                .setMaxRows(limit)
+                .findEach(urlCheck -> write(generator, urlCheck, false)));
+    };
+
+    /**
+     * Checks whose content differed from the check before, oldest first. A client polls with the
+     * id of the last change it has seen as {@code after}.
+     */
+    public static Handler listChanges = ctx -> {
+        long after = ctx.queryParamAsClass("after", Long.class).getOrDefault(0L);
+        int limit = limit(ctx);
+
+        stream(ctx, generator -> new QUrlCheck(Replica.get())
+                .select(CHECK_COLUMNS)
+                .fetch("url", "name")
+                .content.fetch()
+                .changed.isTrue()
+                .id.greaterThan(after)
+                .orderBy()
+                .id.asc()
+                .setMaxRows(limit)
+                .findEach(urlCheck -> write(generator, urlCheck, true)));
+    };
+
+    private static Iterable<JsonNode> array(Context ctx, String field) {
+        JsonNode body;
+        try {
+            body = ctx.bodyAsClass(JsonNode.class);
+        } catch (Exception e) {
+            throw new BadRequestResponse("Request body must be a JSON object");
+        }
+        JsonNode values = body.path(field);
+        if (!values.isArray()) {
+            throw new BadRequestResponse("Field '" + field + "' must be an array");
+        }
+        if (values.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestResponse("At most " + MAX_BATCH_SIZE + " items per request");
+        }
+        return values;
+    }
+
+    private static int limit(Context ctx) {
+        return ctx.queryParamAsClass("limit", Integer.class)
+                .check(value -> value > 0 && value <= MAX_LIMIT, "limit must be between 1 and " + MAX_LIMIT)
+                .getOrDefault(DEFAULT_LIMIT);
+    }
+
+    /**
+     * Inserts the new urls in one batch. If another request inserted one of the origins in the
+     * meantime the batch fails on the unique index, and the urls are inserted one by one instead.
+     */
+    private static void insertAll(Context ctx, Map<String, Url> newUrls, Map<String, Url> existing) {
+        if (newUrls.isEmpty()) {
+            return;
+        }
+        CheckScheduler checkScheduler = ctx.appAttribute(CheckScheduler.class);
+        newUrls.values().forEach(checkScheduler::scheduleNew);
+        try (Transaction transaction = DB.beginTransaction()) {
+            transaction.setBatchMode(true);
+            DB.insertAll(newUrls.values());
+            transaction.commit();
+        } catch (PersistenceException e) {
+            for (Map.Entry<String, Url> entry : List.copyOf(newUrls.entrySet())) {
+                // fresh instances: the failed batch may have assigned ids that were rolled back
+                Url url = new Url(entry.getValue().getName(), entry.getKey());
+                checkScheduler.scheduleNew(url);
+                Url stored = url.insertOrGet();
+                if (stored == url) {
+                    newUrls.put(entry.getKey(), url);
+                } else {
+                    newUrls.remove(entry.getKey());
+                    existing.put(entry.getKey(), stored);
+                }
+            }
+        }
+
+        ctx.appAttribute(CachedCount.class).add(newUrls.size());
+        PageCache pageCache = ctx.appAttribute(PageCache.class);
+        newUrls.values().forEach(url -> pageCache.urlCreated(url.getId()));
+    }
+
+    private static void stream(Context ctx, RowWriter rowWriter) throws IOException {
+        ctx.contentType(NDJSON);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(ctx.res.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            rowWriter.write(generator);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void write(JsonGenerator generator, Url url) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", url.getId());
+            generator.writeStringField("name", url.getName());
+            generator.writeStringField("createdAt", toString(url.getCreatedAt()));
+            generator.writeStringField("lastCheckAt", toString(url.getLastCheckAt()));
+            generator.writeObjectField("lastStatusCode", url.getLastStatusCode());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(JsonGenerator generator, UrlCheck urlCheck, boolean withUrl) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", urlCheck.getId());
+            if (withUrl) {
+                generator.writeNumberField("urlId", urlCheck.getUrl().getId());
+                generator.writeStringField("url", urlCheck.getUrl().getName());
+            }
+            generator.writeNumberField("statusCode", urlCheck.getStatusCode());
+            generator.writeStringField("title", urlCheck.getTitle());
+            generator.writeStringField("h1", urlCheck.getH1());
+            generator.writeStringField("description", urlCheck.getDescription());
+            generator.writeBooleanField("changed", urlCheck.isChanged());
+            generator.writeObjectField("dnsMillis", urlCheck.getDnsMillis());
+            generator.writeObjectField("connectMillis", urlCheck.getConnectMillis());
+            generator.writeObjectField("tlsMillis", urlCheck.getTlsMillis());
+            generator.writeObjectField("ttfbMillis", urlCheck.getTtfbMillis());
+            generator.writeObjectField("downloadMillis", urlCheck.getDownloadMillis());
+            generator.writeObjectField("responseBytes", urlCheck.getResponseBytes());
+            generator.writeStringField("redirectChain", urlCheck.getRedirectChain());
+            generator.writeStringField("createdAt", toString(urlCheck.getCreatedAt()));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String toString(Instant instant) {
+        return instant != null ? instant.toString() : null;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
@@ -0,0 +1,71 @@
+package hexlet.code.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * A row count that a background thread reloads every ttl once it is started, so requests never
+ * wait for {@code count(*)}; only a request that comes before the first load does.
+ */
+public final class CachedCount {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachedCount.class);
+
+    private final IntSupplier loader;
+
+    private final Duration ttl;
+
+    private final AtomicInteger value = new AtomicInteger(-1);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cached-count");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CachedCount(IntSupplier loader, Duration ttl) {
+        this.loader = loader;
+        this.ttl = ttl;
+    }
+
+    public void start() {
+        executor.scheduleWithFixedDelay(this::refreshSafely, 0, ttl.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int get() {
+        if (value.get() < 0) {
+            refresh();
+        }
+        return value.get();
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(int delta) {
+        value.updateAndGet(count -> count >= 0 ? count + delta : count);
+    }
+
+    private void refresh() {
+        value.set(loader.getAsInt());
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not refresh the count: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package hexlet.code.controllers;
+
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Weak validators for the html pages. A page's tag is derived from everything it shows, so a
+ * request carrying the current tag is answered with 304 before anything is rendered.
+ */
+final class ETags {
+
+    private static final int TAG_BYTES = 12;
+
+    private ETags() {
+    }
+
+    static String version(String... parts) {
+        MessageDigest digest = sha256();
+        for (String part : parts) {
+            digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        byte[] hash = digest.digest();
+        return HexFormat.of().formatHex(hash, 0, TAG_BYTES);
+    }
+
+    /**
+     * Sets the tag of the page and tells whether the client already has it, in which case the
+     * response is a 304 and the caller must stop. Pages that are about to show a flash message
+     * are never tagged, since the message lives in the session and not in the tag.
+     */
+    static boolean notModified(Context ctx, String... parts) {
+        if (ctx.sessionAttribute("flash") != null) {
+            return false;
+        }
+        String etag = "W/\"" + version(parts) + "\"";
+        ctx.header(Header.ETAG, etag);
+        ctx.header(Header.CACHE_CONTROL, "no-cache");
+
+        String ifNoneMatch = ctx.header(Header.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || weak(tag).equals(weak(etag))) {
+                ctx.status(304);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String weak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
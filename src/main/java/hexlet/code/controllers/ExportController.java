@@ -0,0 +1,221 @@
+package hexlet.code.controllers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import hexlet.code.domain.Replica;
+import io.ebean.Database;
+import io.ebean.SqlQuery;
+import io.ebean.Transaction;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the whole check history. Rows are read from a JDBC cursor with a bounded fetch size and
+ * written to the response as they arrive, so memory use does not depend on the number of checks.
+ */
+public final class ExportController {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final int GZIP_BUFFER_SIZE = 65_536;
+
+    private static final Pattern STATUS_CLASS = Pattern.compile("([1-5])xx");
+
+    private static final String[] COLUMNS = {
+        "id", "url_id", "url", "status_code", "title", "h1", "description", "created_at", "changed",
+    };
+
+    private static final int CREATED_AT = 8;
+
+    private static final int CHANGED = 9;
+
+    private static final String SELECT = "select c.id, c.url_id, u.name, c.status_code, t.title, t.h1,"
+            + " t.description, c.created_at, c.changed from url_check c join url u on u.id = c.url_id"
+            + " join check_content t on t.hash = c.content_hash";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public static Handler exportChecks = ctx -> {
+        String format = ctx.queryParamAsClass("format", String.class)
+                .check(value -> value.equals("csv") || value.equals("ndjson"), "format must be csv or ndjson")
+                .getOrDefault("csv");
+        boolean gzip = ctx.queryParamAsClass("gzip", Boolean.class).getOrDefault(false);
+
+        List<String> where = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+        LocalDate from = date(ctx, "from");
+        if (from != null) {
+            where.add("c.created_at >= ?");
+            parameters.add(Timestamp.from(from.atStartOfDay(ZoneOffset.UTC).toInstant()));
+        }
+        LocalDate to = date(ctx, "to");
+        if (to != null) {
+            where.add("c.created_at < ?");
+            parameters.add(Timestamp.from(to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant()));
+        }
+        String status = ctx.queryParam("status");
+        if (status != null) {
+            Matcher statusClass = STATUS_CLASS.matcher(status);
+            if (statusClass.matches()) {
+                int base = Integer.parseInt(statusClass.group(1)) * 100;
+                where.add("c.status_code between ? and ?");
+                parameters.add(base);
+                parameters.add(base + 99);
+            } else {
+                where.add("c.status_code = ?");
+                parameters.add(ctx.queryParamAsClass("status", Integer.class).get());
+            }
+        }
+
+        String sql = SELECT + (where.isEmpty() ? "" : " where " + String.join(" and ", where)) + " order by c.id";
+        String fileName = "url_checks." + format + (gzip ? ".gz" : "");
+        if (gzip) {
+            ctx.contentType("application/gzip");
+        } else {
+            ctx.contentType(format.equals("csv") ? "text/csv; charset=utf-8" : ApiController.NDJSON);
+        }
+        ctx.header("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+
+        OutputStream out = ctx.res.getOutputStream();
+        if (gzip) {
+            out = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+        }
+        // a transaction of its own keeps autocommit off, which postgres needs to honour the fetch size
+        Database database = Replica.get();
+        try (Transaction transaction = database.createTransaction();
+             RowWriter rowWriter = format.equals("csv") ? new CsvWriter(out) : new NdjsonWriter(out)) {
+            transaction.setReadOnly(true);
+            SqlQuery query = database.sqlQuery(sql)
+                    .usingTransaction(transaction)
+                    .setBufferFetchSizeHint(FETCH_SIZE);
+            for (int i = 0; i < parameters.size(); i++) {
+                query.setParameter(i + 1, parameters.get(i));
+            }
+            query.findEachRow((resultSet, rowNum) -> rowWriter.write(resultSet));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    };
+
+    private static LocalDate date(Context ctx, String name) {
+        String value = ctx.queryParam(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestResponse(name + " must be a date like 2022-01-31");
+        }
+    }
+
+    private interface RowWriter extends Closeable {
+        void write(ResultSet resultSet) throws SQLException;
+    }
+
+    private static final class CsvWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet resultSet) throws SQLException {
+            try {
+                for (int column = 1; column <= COLUMNS.length; column++) {
+                    if (column > 1) {
+                        writer.write(',');
+                    }
+                    String value;
+                    if (column == CREATED_AT) {
+                        value = resultSet.getTimestamp(column).toInstant().toString();
+                    } else if (column == CHANGED) {
+                        value = String.valueOf(resultSet.getBoolean(column));
+                    } else {
+                        value = resultSet.getString(column);
+                    }
+                    if (value != null) {
+                        writeField(value);
+                    }
+                }
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    private static final class NdjsonWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream out) throws IOException {
+            generator = JSON_FACTORY.createGenerator(out);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet resultSet) throws SQLException {
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField("id", resultSet.getLong(1));
+                generator.writeNumberField("urlId", resultSet.getLong(2));
+                generator.writeStringField("url", resultSet.getString(3));
+                generator.writeNumberField("statusCode", resultSet.getInt(4));
+                generator.writeStringField("title", resultSet.getString(5));
+                generator.writeStringField("h1", resultSet.getString(6));
+                generator.writeStringField("description", resultSet.getString(7));
+                generator.writeStringField("createdAt", resultSet.getTimestamp(CREATED_AT).toInstant().toString());
+                generator.writeBooleanField("changed", resultSet.getBoolean(CHANGED));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package hexlet.code.controllers;
+
+import hexlet.code.Lifecycle;
+import io.javalin.http.Handler;
+import io.javalin.http.Header;
+
+import java.util.Map;
+
+public final class HealthController {
+
+    /**
+     * Answers as long as the server handles requests at all.
+     */
+    public static Handler live = ctx -> {
+        ctx.header(Header.CACHE_CONTROL, "no-store");
+        ctx.json(Map.of("state", ctx.appAttribute(Lifecycle.class).getState()));
+    };
+
+    /**
+     * Answers 200 once the warm-up finished, and 503 before that and while draining.
+     */
+    public static Handler ready = ctx -> {
+        Lifecycle lifecycle = ctx.appAttribute(Lifecycle.class);
+        ctx.status(lifecycle.isReady() ? 200 : 503);
+        ctx.header(Header.CACHE_CONTROL, "no-store");
+        ctx.json(lifecycle.getStatus());
+    };
+}
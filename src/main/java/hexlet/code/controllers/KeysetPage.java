@@ -0,0 +1,60 @@
+package hexlet.code.controllers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of rows read with a {@code where id > ?} / {@code where id < ?} cursor.
+ *
+ * <p>Rows are fetched with {@code limit + 1} so the extra row tells whether there is
+ * more data in the direction of the query. When the query ran against the display
+ * order (a "previous" link) the rows are reversed back.</p>
+ */
+public final class KeysetPage<T> {
+    private final List<T> items;
+
+    private final boolean hasPrevious;
+
+    private final boolean hasNext;
+
+    private KeysetPage(List<T> items, boolean hasPrevious, boolean hasNext) {
+        this.items = items;
+        this.hasPrevious = hasPrevious;
+        this.hasNext = hasNext;
+    }
+
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, boolean backwards, boolean hasCursor) {
+        boolean hasMore = rows.size() > limit;
+        List<T> items = new ArrayList<>(hasMore ? rows.subList(0, limit) : rows);
+        if (backwards) {
+            Collections.reverse(items);
+            return new KeysetPage<>(items, hasMore, hasCursor);
+        }
+        return new KeysetPage<>(items, hasCursor, hasMore);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public T getFirst() {
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+
+    public boolean isHasPrevious() {
+        return hasPrevious;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+}
@@ -0,0 +1,15 @@
+package hexlet.code.controllers;
+
+import hexlet.code.metrics.EbeanMetrics;
+import io.javalin.http.Handler;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+
+public final class MetricsController {
+
+    public static Handler scrape = ctx -> {
+        ctx.appAttribute(EbeanMetrics.class).collect();
+        ctx.contentType(TextFormat.CONTENT_TYPE_004);
+        ctx.result(ctx.appAttribute(PrometheusMeterRegistry.class).scrape());
+    };
+}
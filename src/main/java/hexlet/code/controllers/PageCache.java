@@ -0,0 +1,213 @@
+package hexlet.code.controllers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.UrlCheckSummary;
+import hexlet.code.domain.UrlPage;
+import hexlet.code.domain.query.QUrl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded caches for url lookups and for the rendered rows of the url list and url page.
+ *
+ * <p>Writers report what they changed: {@link #urlCreated(long)} after an insert and
+ * {@link #urlChanged(long)} after a check of the url was saved or rolled up, or its discovered
+ * pages were saved. Only the entries showing that url are dropped; the time to live bounds
+ * anything a concurrent load may have put back in the meantime.</p>
+ */
+public final class PageCache implements MeterBinder {
+
+    private final TemplateEngine templateEngine;
+
+    private final Cache<Long, Url> urls;
+
+    private final Cache<ListKey, ListFragment> listFragments;
+
+    private final Cache<Long, ShowFragment> showFragments;
+
+    public PageCache(TemplateEngine templateEngine, long maxUrls, long maxPages, Duration ttl) {
+        this.templateEngine = templateEngine;
+        this.urls = Caffeine.newBuilder()
+                .maximumSize(maxUrls)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.listFragments = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.showFragments = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the url or {@code null}; missing urls are not cached. The instance is shared
+     * between requests and must not be modified.
+     */
+    public Url getUrl(long id) {
+        return urls.get(id, key -> new QUrl()
+                .id.equalTo(key)
+                .findOne());
+    }
+
+    ListFragment getListFragment(Long after, Long before) {
+        return listFragments.get(new ListKey(after, before), key -> {
+            KeysetPage<Url> page = UrlController.findUrls(after, before);
+            return new ListFragment(before, page, render("urls/rows.html", Map.of("urls", page)));
+        });
+    }
+
+    ShowFragment getShowFragment(long urlId) {
+        return showFragments.get(urlId, key -> {
+            KeysetPage<UrlCheck> checks = UrlController.findChecks(urlId, null, null);
+            List<UrlCheckSummary> summaries = UrlController.findSummaries(urlId);
+            List<UrlPage> pages = UrlController.findPages(urlId);
+            return new ShowFragment(checks, render("urls/checks.html", Map.of("urlChecks", checks)),
+                    render("urls/summaries.html", Map.of("summaries", summaries)),
+                    render("urls/pages.html", Map.of("pages", pages)));
+        });
+    }
+
+    String render(String template, Map<String, Object> variables) {
+        return templateEngine.process(template, new Context(Locale.getDefault(), variables));
+    }
+
+    public void urlCreated(long id) {
+        listFragments.asMap().values().removeIf(fragment -> fragment.admits(id));
+    }
+
+    public void urlChanged(long id) {
+        urls.invalidate(id);
+        showFragments.invalidate(id);
+        listFragments.asMap().values().removeIf(fragment -> fragment.shows(id));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, urls, "urls");
+        CaffeineCacheMetrics.monitor(registry, listFragments, "urlListFragments");
+        CaffeineCacheMetrics.monitor(registry, showFragments, "urlShowFragments");
+    }
+
+    private static final class ListKey {
+        private final Long after;
+
+        private final Long before;
+
+        ListKey(Long after, Long before) {
+            this.after = after;
+            this.before = before;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ListKey)) {
+                return false;
+            }
+            ListKey other = (ListKey) o;
+            return Objects.equals(after, other.after) && Objects.equals(before, other.before);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(after, before);
+        }
+    }
+
+    static final class ListFragment {
+        private final Long before;
+
+        private final KeysetPage<Url> page;
+
+        private final String rows;
+
+        private final String version;
+
+        ListFragment(Long before, KeysetPage<Url> page, String rows) {
+            this.before = before;
+            this.page = page;
+            this.rows = rows;
+            this.version = ETags.version(rows);
+        }
+
+        KeysetPage<Url> getPage() {
+            return page;
+        }
+
+        String getRows() {
+            return rows;
+        }
+
+        String getVersion() {
+            return version;
+        }
+
+        boolean shows(long id) {
+            return page.getItems().stream().anyMatch(url -> url.getId() == id);
+        }
+
+        /**
+         * Ids only grow, so a new url lands on the last page in id order, or on a page
+         * read backwards from a cursor above it.
+         */
+        boolean admits(long id) {
+            return before != null ? id < before : !page.isHasNext();
+        }
+    }
+
+    static final class ShowFragment {
+        private final KeysetPage<UrlCheck> checks;
+
+        private final String checkRows;
+
+        private final String summaries;
+
+        private final String pages;
+
+        private final String version;
+
+        ShowFragment(KeysetPage<UrlCheck> checks, String checkRows, String summaries, String pages) {
+            this.checks = checks;
+            this.checkRows = checkRows;
+            this.summaries = summaries;
+            this.pages = pages;
+            this.version = ETags.version(checkRows, summaries, pages);
+        }
+
+        KeysetPage<UrlCheck> getChecks() {
+            return checks;
+        }
+
+        String getCheckRows() {
+            return checkRows;
+        }
+
+        String getSummaries() {
+            return summaries;
+        }
+
+        String getPages() {
+            return pages;
+        }
+
+        String getVersion() {
+            return version;
+        }
+    }
+}
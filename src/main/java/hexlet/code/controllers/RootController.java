@@ -5,6 +5,6 @@ import io.javalin.http.Handler;
 public final class RootController {
 
     public static Handler welcome = ctx -> {
-        ctx.render("index.html");
+        ctx.appAttribute(TemplateRenderer.class).render(ctx, "index.html");
     };
 }
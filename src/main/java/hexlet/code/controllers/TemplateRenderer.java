@@ -0,0 +1,69 @@
+package hexlet.code.controllers;
+
+import hexlet.code.domain.Url;
+import io.javalin.http.Context;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.WebContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders the html pages. With streaming enabled the page is processed straight into the
+ * response writer, so the first part of a long table goes out as soon as the servlet buffer
+ * fills instead of after the whole page was built as a string. A template error half way
+ * through then can no longer turn into an error page, which is why it is off by default.
+ */
+public final class TemplateRenderer {
+
+    private static final String HTML = "text/html; charset=utf-8";
+
+    private final TemplateEngine templateEngine;
+
+    private final boolean streaming;
+
+    public TemplateRenderer(TemplateEngine templateEngine, boolean streaming) {
+        this.templateEngine = templateEngine;
+        this.streaming = streaming;
+    }
+
+    /**
+     * Renders the template with the request attributes as variables, like {@code ctx.render} does.
+     */
+    public void render(Context ctx, String template) throws IOException {
+        if (!streaming) {
+            ctx.render(template);
+            return;
+        }
+        ctx.contentType(HTML);
+        WebContext context = new WebContext(ctx.req, ctx.res, ctx.req.getServletContext(), ctx.req.getLocale());
+        templateEngine.process(template, context, ctx.res.getWriter());
+    }
+
+    /**
+     * Renders every page and fragment once with empty data, so their parsed form is in the
+     * template cache before the first request needs it.
+     */
+    public void warmUp() {
+        Url url = new Url("https://example.com", "https://example.com");
+        KeysetPage<Object> empty = KeysetPage.of(List.of(), 1, false, false);
+        // the layout reads the flash message from the session, which a plain context does not have
+        Map<String, Object> session = Map.of("session", Map.of());
+
+        render("index.html", session);
+        render("urls/index.html", Map.of("session", Map.of(), "urls", empty, "urlRows", "", "totalUrls", 0,
+                "sweepRunning", false));
+        render("urls/show.html", Map.of("session", Map.of(), "url", url, "urlChecks", empty, "checkRows", "",
+                "summaryTable", "", "pageTable", "", "discovery", true, "discoveryRunning", false));
+        render("urls/rows.html", Map.of("urls", empty));
+        render("urls/checks.html", Map.of("urlChecks", empty));
+        render("urls/summaries.html", Map.of("summaries", List.of()));
+        render("urls/pages.html", Map.of("pages", List.of()));
+    }
+
+    private void render(String template, Map<String, Object> variables) {
+        templateEngine.process(template, new org.thymeleaf.context.Context(Locale.getDefault(), variables));
+    }
+}
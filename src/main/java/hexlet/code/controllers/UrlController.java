@@ -1,59 +1,83 @@
 package hexlet.code.controllers;
 
+import hexlet.code.checker.CheckJob;
+import hexlet.code.checker.CheckJobQueue;
+import hexlet.code.checker.CheckScheduler;
+import hexlet.code.checker.CheckSweeper;
+import hexlet.code.checker.PageDiscovery;
+import hexlet.code.checker.SweepReport;
 import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.UrlCheckSummary;
+import hexlet.code.domain.UrlPage;
 import hexlet.code.domain.query.QUrl;
 import hexlet.code.domain.query.QUrlCheck;
+import hexlet.code.domain.query.QUrlCheckSummary;
+import hexlet.code.domain.query.QUrlPage;
+import hexlet.code.domain.Replica;
 import hexlet.code.domain.Url;
-import io.ebean.PagedList;
+import hexlet.code.domain.UrlNormalizer;
+import io.ebean.DB;
+import io.ebean.Database;
+import io.javalin.http.Context;
 import io.javalin.http.Handler;
 import io.javalin.http.NotFoundResponse;
-import kong.unirest.HttpResponse;
-import kong.unirest.Unirest;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 public class UrlController {
 
     private static final int URL_COUNT = 10;
 
+    private static final int CHECK_COUNT = 10;
+
+    private static final int SUMMARY_COUNT = 30;
+
     public static Handler listUrls = ctx -> {
-        int page = ctx.queryParamAsClass("page", Integer.class).getOrDefault(1) - 1;
-        int rowsPerPage = URL_COUNT;
+        Long after = ctx.queryParamAsClass("after", Long.class).getOrDefault(null);
+        Long before = ctx.queryParamAsClass("before", Long.class).getOrDefault(null);
+        String query = ctx.queryParamAsClass("q", String.class).getOrDefault("").trim();
 
-        PagedList<Url> pagedUrls = new QUrl()
-                .setFirstRow(page * rowsPerPage)
-                .setMaxRows(rowsPerPage)
-                .orderBy()
-                .id.asc()
-                .findPagedList();
-
-        List<Url> urls = pagedUrls.getList();
-
-        int lastPage = pagedUrls.getTotalPageCount() + 1;
-        int currentPage = pagedUrls.getPageIndex() + 1;
-        List<Integer> pages = IntStream
-                .range(1, lastPage)
-                .boxed()
-                .collect(Collectors.toList());
-
-        ctx.attribute("urls", urls);
-        ctx.attribute("pages", pages);
-        ctx.attribute("currentPage", currentPage);
-        ctx.render("urls/index.html");
+        PageCache pageCache = ctx.appAttribute(PageCache.class);
+        CheckSweeper checkSweeper = ctx.appAttribute(CheckSweeper.class);
+        int totalUrls = ctx.appAttribute(CachedCount.class).get();
+        boolean sweepRunning = checkSweeper.isRunning();
+        SweepReport sweepReport = checkSweeper.getLastReport();
+
+        if (query.isEmpty()) {
+            PageCache.ListFragment urls = pageCache.getListFragment(after, before);
+            if (ETags.notModified(ctx, urls.getVersion(), String.valueOf(totalUrls), String.valueOf(sweepRunning),
+                    sweepReport != null ? String.valueOf(sweepReport.getStartedAt()) : null)) {
+                return;
+            }
+            ctx.attribute("urls", urls.getPage());
+            ctx.attribute("urlRows", urls.getRows());
+        } else {
+            // search results are neither cached nor tagged, there are too many possible queries
+            KeysetPage<Url> urls = ctx.appAttribute(UrlSearch.class).find(Replica.get(), query, after, before,
+                    URL_COUNT);
+            ctx.attribute("urls", urls);
+            ctx.attribute("urlRows", pageCache.render("urls/rows.html", Map.of("urls", urls)));
+            ctx.attribute("q", query);
+        }
+        ctx.attribute("totalUrls", totalUrls);
+        ctx.attribute("sweepRunning", sweepRunning);
+        ctx.attribute("sweepReport", sweepReport);
+        ctx.appAttribute(TemplateRenderer.class).render(ctx, "urls/index.html");
     };
 
     public static Handler createUrl = ctx -> {
         String url = ctx.formParam("url");
         URL validUrl;
+        String origin;
         try {
             validUrl = new URL(url);
+            origin = UrlNormalizer.normalize(validUrl);
         } catch (MalformedURLException e) {
             ctx.sessionAttribute("flash", "Некорректный URL");
             ctx.sessionAttribute("flash-type", "danger");
@@ -61,24 +85,18 @@ public class UrlController {
             return;
         }
 
-        int port = validUrl.getPort();
-        String host = validUrl.getHost();
-        String hostPort = port == -1 ? host : host + ":" + port;
-        String newSite = validUrl.getProtocol() + "://" + hostPort;
-
-        Url existentUrl = new QUrl()
-                .name.like("%" + hostPort)
-                .findOne();
+        Url newUrl = new Url(siteName(validUrl), origin);
+        ctx.appAttribute(CheckScheduler.class).scheduleNew(newUrl);
 
-        if (existentUrl != null) {
+        if (newUrl.insertOrGet() != newUrl) {
             ctx.sessionAttribute("flash", "Страница уже существует");
             ctx.sessionAttribute("flash-type", "info");
             ctx.redirect("/urls");
             return;
         }
 
-        Url newUrl = new Url(newSite);
-        newUrl.save();
+        ctx.appAttribute(CachedCount.class).increment();
+        ctx.appAttribute(PageCache.class).urlCreated(newUrl.getId());
         ctx.sessionAttribute("flash", "Страница успешно добавлена");
         ctx.sessionAttribute("flash-type", "success");
         ctx.redirect("/urls");
@@ -86,28 +104,87 @@ public class UrlController {
 
     public static Handler showUrl = ctx -> {
         long id = ctx.pathParamAsClass("id", Long.class).getOrDefault(null);
+        Long after = ctx.queryParamAsClass("after", Long.class).getOrDefault(null);
+        Long before = ctx.queryParamAsClass("before", Long.class).getOrDefault(null);
 
-        Url url = new QUrl()
-                .id.equalTo(id)
-                .findOne();
+        PageCache pageCache = ctx.appAttribute(PageCache.class);
+        Url url = pageCache.getUrl(id);
 
         if (url == null) {
             throw new NotFoundResponse();
         }
 
-        List<UrlCheck> urlChecks = new QUrlCheck()
-                .url.id.equalTo(id)
-                .id.desc().findList();
+        PageCache.ShowFragment fragment = pageCache.getShowFragment(id);
+        CheckJob checkJob = ctx.appAttribute(CheckJobQueue.class).getJob(id);
+        PageDiscovery pageDiscovery = ctx.appAttribute(PageDiscovery.class);
+        boolean discoveryRunning = pageDiscovery.isRunning(id);
+        KeysetPage<UrlCheck> urlChecks = fragment.getChecks();
+        String checkRows = fragment.getCheckRows();
+        if (after != null || before != null) {
+            urlChecks = findChecks(Replica.get(), id, after, before);
+            checkRows = pageCache.render("urls/checks.html", Map.of("urlChecks", urlChecks));
+        } else if (ETags.notModified(ctx, fragment.getVersion(), String.valueOf(id), url.getName(),
+                String.valueOf(url.getCreatedAt()), String.valueOf(url.getLastCheckAt()),
+                String.valueOf(url.getCheckIntervalMinutes()), checkJob != null ? checkJob.getStatus().name() : null,
+                String.valueOf(discoveryRunning))) {
+            return;
+        }
 
         ctx.attribute("urlChecks", urlChecks);
+        ctx.attribute("checkRows", checkRows);
+        ctx.attribute("summaryTable", fragment.getSummaries());
+        ctx.attribute("pageTable", fragment.getPages());
+        ctx.attribute("checkJob", checkJob);
+        ctx.attribute("discovery", pageDiscovery.isEnabled());
+        ctx.attribute("discoveryRunning", discoveryRunning);
 
         ctx.attribute("url", url);
-        ctx.render("urls/show.html");
+        ctx.appAttribute(TemplateRenderer.class).render(ctx, "urls/show.html");
+    };
+
+    public static Handler listChecks = ctx -> {
+        long id = ctx.pathParamAsClass("id", Long.class).get();
+
+        if (ctx.appAttribute(PageCache.class).getUrl(id) == null) {
+            throw new NotFoundResponse();
+        }
+
+        KeysetPage<UrlCheck> urlChecks = findChecks(ctx, id);
+        if (urlChecks.isHasNext()) {
+            ctx.header("X-Next-Before", String.valueOf(urlChecks.getLast().getId()));
+        }
+
+        ctx.attribute("urlChecks", urlChecks);
+        ctx.appAttribute(TemplateRenderer.class).render(ctx, "urls/checks.html");
     };
 
     public static Handler checkUrl = ctx -> {
         long id = ctx.pathParamAsClass("id", Long.class).getOrDefault(null);
 
+        Url url = ctx.appAttribute(PageCache.class).getUrl(id);
+
+        if (url == null) {
+            throw new NotFoundResponse();
+        }
+
+        CheckJobQueue checkJobQueue = ctx.appAttribute(CheckJobQueue.class);
+        try {
+            checkJobQueue.submit(url);
+            ctx.sessionAttribute("flash", "Проверка запущена");
+            ctx.sessionAttribute("flash-type", "success");
+        } catch (RejectedExecutionException e) {
+            ctx.sessionAttribute("flash", "Слишком много проверок, попробуйте позже");
+            ctx.sessionAttribute("flash-type", "warning");
+        }
+        ctx.redirect("/urls/" + url.getId());
+    };
+
+    public static Handler scheduleChecks = ctx -> {
+        long id = ctx.pathParamAsClass("id", Long.class).getOrDefault(null);
+        int interval = ctx.formParamAsClass("interval", Integer.class)
+                .check(value -> value >= 0, "Интервал не может быть отрицательным")
+                .get();
+
         Url url = new QUrl()
                 .id.equalTo(id)
                 .findOne();
@@ -116,24 +193,138 @@ public class UrlController {
             throw new NotFoundResponse();
         }
 
-        try {
-            HttpResponse<String> response = Unirest.get(url.getName()).asString();
-            int statusCode = response.getStatus();
-            Document body = Jsoup.parse(response.getBody());
-            String title = body.title();
-            Element h1El = body.selectFirst("h1");
-            Element descriptionEl = body.selectFirst("meta[name=description]");
-            String h1 = h1El != null ? h1El.text() : "";
-            String description = descriptionEl != null ? descriptionEl.attr("content") : "";
-
-            UrlCheck urlCheck = new UrlCheck(statusCode, title, h1, description, url);
-            urlCheck.save();
-            ctx.sessionAttribute("flash", "Страница успешно проверена");
+        if (interval > 0) {
+            url.scheduleChecks(interval, CheckScheduler.nextCheckAt(Instant.now(), interval));
+        } else {
+            url.scheduleChecks(null, null);
+        }
+        url.update();
+        ctx.appAttribute(PageCache.class).urlChanged(id);
+
+        ctx.sessionAttribute("flash", "Расписание проверок обновлено");
+        ctx.sessionAttribute("flash-type", "success");
+        ctx.redirect("/urls/" + id);
+    };
+
+    public static Handler discoverPages = ctx -> {
+        long id = ctx.pathParamAsClass("id", Long.class).getOrDefault(null);
+
+        Url url = ctx.appAttribute(PageCache.class).getUrl(id);
+        PageDiscovery pageDiscovery = ctx.appAttribute(PageDiscovery.class);
+
+        if (url == null || !pageDiscovery.isEnabled()) {
+            throw new NotFoundResponse();
+        }
+
+        if (pageDiscovery.submit(url)) {
+            ctx.sessionAttribute("flash", "Поиск страниц запущен");
             ctx.sessionAttribute("flash-type", "success");
-        } catch (Exception e) {
-            ctx.sessionAttribute("flash", "Страница не существует");
-            ctx.sessionAttribute("flash-type", "danger");
+        } else {
+            ctx.sessionAttribute("flash", "Поиск страниц уже выполняется");
+            ctx.sessionAttribute("flash-type", "info");
         }
-        ctx.redirect("/urls/" + url.getId());
+        ctx.redirect("/urls/" + id);
+    };
+
+    public static Handler checkAllUrls = ctx -> {
+        if (ctx.appAttribute(CheckSweeper.class).start()) {
+            ctx.sessionAttribute("flash", "Проверка всех сайтов запущена");
+            ctx.sessionAttribute("flash-type", "success");
+        } else {
+            ctx.sessionAttribute("flash", "Проверка всех сайтов уже выполняется");
+            ctx.sessionAttribute("flash-type", "info");
+        }
+        ctx.redirect("/urls");
     };
+
+    public static Handler checkStatus = ctx -> {
+        long id = ctx.pathParamAsClass("id", Long.class).getOrDefault(null);
+
+        CheckJob job = ctx.appAttribute(CheckJobQueue.class).getJob(id);
+
+        if (job == null) {
+            throw new NotFoundResponse();
+        }
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("urlId", job.getUrlId());
+        status.put("status", job.getStatus());
+        status.put("error", job.getError());
+        ctx.json(status);
+    };
+
+    static String siteName(URL url) {
+        int port = url.getPort();
+        String host = url.getHost();
+        String hostPort = port == -1 ? host : host + ":" + port;
+        return url.getProtocol() + "://" + hostPort;
+    }
+
+    static KeysetPage<Url> findUrls(Long after, Long before) {
+        QUrl query = new QUrl();
+        if (before != null) {
+            query.id.lessThan(before)
+                    .orderBy()
+                    .id.desc();
+        } else {
+            query.id.greaterThan(after != null ? after : 0)
+                    .orderBy()
+                    .id.asc();
+        }
+        List<Url> rows = query
+                .setMaxRows(URL_COUNT + 1)
+                .findList();
+
+        return KeysetPage.of(rows, URL_COUNT, before != null, before != null || after != null);
+    }
+
+    static List<UrlCheckSummary> findSummaries(long urlId) {
+        return new QUrlCheckSummary()
+                .url.id.equalTo(urlId)
+                .orderBy()
+                .checkDate.desc()
+                .setMaxRows(SUMMARY_COUNT)
+                .findList();
+    }
+
+    static List<UrlPage> findPages(long urlId) {
+        return new QUrlPage()
+                .content.fetch()
+                .url.id.equalTo(urlId)
+                .orderBy()
+                .location.asc()
+                .findList();
+    }
+
+    private static KeysetPage<UrlCheck> findChecks(Context ctx, long urlId) {
+        Long after = ctx.queryParamAsClass("after", Long.class).getOrDefault(null);
+        Long before = ctx.queryParamAsClass("before", Long.class).getOrDefault(null);
+        return findChecks(Replica.get(), urlId, after, before);
+    }
+
+    static KeysetPage<UrlCheck> findChecks(long urlId, Long after, Long before) {
+        return findChecks(DB.getDefault(), urlId, after, before);
+    }
+
+    static KeysetPage<UrlCheck> findChecks(Database database, long urlId, Long after, Long before) {
+        QUrlCheck query = new QUrlCheck(database)
+                .content.fetch()
+                .url.id.equalTo(urlId);
+        if (after != null) {
+            query.id.greaterThan(after)
+                    .orderBy()
+                    .id.asc();
+        } else {
+            if (before != null) {
+                query.id.lessThan(before);
+            }
+            query.orderBy()
+                    .id.desc();
+        }
+        List<UrlCheck> rows = query
+                .setMaxRows(CHECK_COUNT + 1)
+                .findList();
+
+        return KeysetPage.of(rows, CHECK_COUNT, after != null, before != null || after != null);
+    }
 }
@@ -0,0 +1,88 @@
+package hexlet.code.controllers;
+
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlNormalizer;
+import hexlet.code.domain.query.QUrl;
+import io.ebean.Database;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Finds urls by host prefix or by the words of their latest title, h1 and description, one
+ * keyset page at a time in id order.
+ *
+ * <p>Each kind of match is its own index-backed query for at most one page past the cursor:
+ * host prefixes range over the index on {@code url.host}, words go through a {@code tsvector}
+ * index on Postgres and the native full-text index on H2. Only the merged page of ids is
+ * loaded as urls, so no query ever scans titles with {@code like '%...%'}.</p>
+ */
+public final class UrlSearch {
+
+    private static final String POSTGRES_CONTENT_MATCH = "select u.id from check_content c"
+            + " join url u on u.last_content_hash = c.hash"
+            // the same expression as ix_check_content_search, or the index is not used
+            + " where to_tsvector('simple', coalesce(c.title, '') || ' ' || coalesce(c.h1, '') || ' '"
+            + " || coalesce(c.description, '')) @@ plainto_tsquery('simple', :q)";
+
+    private static final String H2_CONTENT_MATCH = "select u.id from ft_search_data(:q, 0, 0) ft"
+            + " join url u on u.last_content_hash = ft.keys[1]"
+            + " where ft.\"TABLE\" = 'CHECK_CONTENT'";
+
+    private final boolean postgres;
+
+    /**
+     * @param postgres whether the database is Postgres; H2 otherwise
+     */
+    public UrlSearch(boolean postgres) {
+        this.postgres = postgres;
+    }
+
+    KeysetPage<Url> find(Database database, String query, Long after, Long before, int count) {
+        boolean backwards = before != null;
+        long cursor = backwards ? before : after != null ? after : 0;
+        int limit = count + 1;
+
+        List<Long> hostIds = List.of();
+        String hostPrefix = UrlNormalizer.searchHost(query);
+        if (!hostPrefix.isEmpty()) {
+            QUrl byHost = new QUrl(database)
+                    .select(QUrl.Alias.id)
+                    .host.startsWith(hostPrefix);
+            if (backwards) {
+                byHost.id.lessThan(cursor).orderBy().id.desc();
+            } else {
+                byHost.id.greaterThan(cursor).orderBy().id.asc();
+            }
+            hostIds = byHost.setMaxRows(limit).findSingleAttributeList();
+        }
+
+        String sql = (postgres ? POSTGRES_CONTENT_MATCH : H2_CONTENT_MATCH)
+                + (backwards ? " and u.id < :cursor order by u.id desc" : " and u.id > :cursor order by u.id")
+                + " limit :limit";
+        List<Long> contentIds = database.sqlQuery(sql)
+                .setParameter("q", query)
+                .setParameter("cursor", cursor)
+                .setParameter("limit", limit)
+                .findList()
+                .stream()
+                .map(row -> row.getLong("id"))
+                .collect(Collectors.toList());
+
+        TreeSet<Long> ids = new TreeSet<>(backwards ? Comparator.reverseOrder() : Comparator.naturalOrder());
+        ids.addAll(hostIds);
+        ids.addAll(contentIds);
+        List<Long> page = ids.stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+        if (page.isEmpty()) {
+            return KeysetPage.of(List.of(), count, backwards, before != null || after != null);
+        }
+
+        QUrl rows = new QUrl(database).id.in(page);
+        List<Url> urls = (backwards ? rows.orderBy().id.desc() : rows.orderBy().id.asc()).findList();
+        return KeysetPage.of(urls, count, backwards, before != null || after != null);
+    }
+}
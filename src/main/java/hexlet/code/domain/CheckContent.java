@@ -0,0 +1,71 @@
+package hexlet.code.domain;
+
+import io.ebean.Model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * The text a check found on a page, stored once per distinct content and referenced by the
+ * hash of it. Rows are never updated: changed text gets a new hash and a new row.
+ */
+@Entity
+public final class CheckContent extends Model {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    private String title;
+
+    private String h1;
+
+    @Lob
+    private String description;
+
+    public CheckContent(String title, String h1, String description) {
+        this.hash = hashOf(title, h1, description);
+        this.title = title;
+        this.h1 = h1;
+        this.description = description;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getH1() {
+        return h1;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * SHA-256 of the fields, each written as {@code <length>:<value>} or {@code -} for null and
+     * joined by {@code |}. The 1.7 migration computes the same in SQL for existing checks.
+     */
+    static String hashOf(String title, String h1, String description) {
+        String canonical = field(title) + "|" + field(h1) + "|" + field(description);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String field(String value) {
+        return value == null ? "-" : value.codePointCount(0, value.length()) + ":" + value;
+    }
+}
@@ -0,0 +1,81 @@
+package hexlet.code.domain;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Response times of a url as bucket counts packed into one binary column, so percentiles are
+ * updated with each check instead of computed over the check history.
+ *
+ * <p>Bucket bounds grow by a factor of 2^(1/4): a percentile is the upper bound of its bucket
+ * and at most 19% above the exact value. Times over 55 seconds share the last bucket. Once the
+ * counts reach {@value #MAX_COUNT} they are halved, so older checks weigh less and less.</p>
+ */
+final class LatencyHistogram {
+    static final int BYTES = 256;
+
+    private static final int BUCKETS = BYTES / Integer.BYTES;
+
+    private static final int STEPS_PER_DOUBLING = 4;
+
+    private static final int MAX_COUNT = 1000;
+
+    private LatencyHistogram() {
+    }
+
+    /**
+     * Returns a new histogram with the time added; {@code histogram} may be {@code null}.
+     */
+    static byte[] record(byte[] histogram, int millis) {
+        ByteBuffer buckets = ByteBuffer.allocate(BYTES);
+        if (histogram != null) {
+            buckets.put(histogram).clear();
+        }
+        int total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.getInt(i * Integer.BYTES);
+        }
+        if (total + 1 > MAX_COUNT) {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.putInt(i * Integer.BYTES, buckets.getInt(i * Integer.BYTES) / 2);
+            }
+        }
+        int index = bucket(millis) * Integer.BYTES;
+        buckets.putInt(index, buckets.getInt(index) + 1);
+        return buckets.array();
+    }
+
+    static Integer percentile(byte[] histogram, double quantile) {
+        if (histogram == null) {
+            return null;
+        }
+        ByteBuffer buckets = ByteBuffer.wrap(histogram);
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.getInt(i * Integer.BYTES);
+        }
+        if (total == 0) {
+            return null;
+        }
+        long rank = Math.max((long) Math.ceil(quantile * total), 1);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.getInt(i * Integer.BYTES);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    private static int bucket(int millis) {
+        if (millis <= 1) {
+            return 0;
+        }
+        int index = (int) Math.ceil(STEPS_PER_DOUBLING * Math.log(millis) / Math.log(2));
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    private static int upperBound(int bucket) {
+        return (int) Math.round(Math.pow(2, (double) bucket / STEPS_PER_DOUBLING));
+    }
+}
@@ -0,0 +1,108 @@
+package hexlet.code.domain;
+
+import hexlet.code.domain.query.QQueuedCheck;
+import hexlet.code.domain.query.QUrl;
+import hexlet.code.domain.query.QUrlCheckSummary;
+import hexlet.code.domain.query.QUrlPage;
+import io.ebean.DB;
+import io.ebean.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Gives the urls that migration 1.2 could not normalize in SQL, those with hosts in other than
+ * ASCII, their origin through {@link UrlNormalizer}. A url whose origin turns out to be taken
+ * already is merged into that url: its checks and daily summaries move over, summed with those of
+ * the same day, and the rest of its rows go.
+ */
+public final class OriginBackfill {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OriginBackfill.class);
+
+    private OriginBackfill() {
+    }
+
+    /**
+     * Returns how many urls were given an origin or merged.
+     */
+    public static int run() {
+        List<Url> urls = new QUrl()
+                .select(QUrl.Alias.id, QUrl.Alias.name)
+                .origin.isNull()
+                .orderBy()
+                .id.asc()
+                .findList();
+        for (Url url : urls) {
+            String origin = originOf(url.getName());
+            try (Transaction transaction = DB.beginTransaction()) {
+                Url existing = new QUrl()
+                        .select(QUrl.Alias.id)
+                        .origin.equalTo(origin)
+                        .findOne();
+                if (existing == null) {
+                    url.assignOrigin(origin);
+                    url.update();
+                } else {
+                    merge(url.getId(), existing);
+                }
+                transaction.commit();
+            }
+        }
+        if (!urls.isEmpty()) {
+            LOGGER.info("Set the origin of {} urls", urls.size());
+        }
+        return urls.size();
+    }
+
+    private static void merge(long urlId, Url into) {
+        DB.sqlUpdate("update url_check set url_id = :into where url_id = :url")
+                .setParameter("into", into.getId())
+                .setParameter("url", urlId)
+                .execute();
+        mergeSummaries(urlId, into);
+        new QQueuedCheck().url.id.equalTo(urlId).delete();
+        new QUrlPage().url.id.equalTo(urlId).delete();
+        new QUrl().id.equalTo(urlId).delete();
+    }
+
+    private static void mergeSummaries(long urlId, Url into) {
+        Map<LocalDate, UrlCheckSummary> kept = new QUrlCheckSummary()
+                .url.id.equalTo(into.getId())
+                .findList()
+                .stream()
+                .collect(Collectors.toMap(UrlCheckSummary::getCheckDate, Function.identity()));
+        for (UrlCheckSummary summary : new QUrlCheckSummary().url.id.equalTo(urlId).findList()) {
+            UrlCheckSummary sameDay = kept.get(summary.getCheckDate());
+            if (sameDay == null) {
+                DB.sqlUpdate("update url_check_summary set url_id = :into where id = :id")
+                        .setParameter("into", into.getId())
+                        .setParameter("id", summary.getId())
+                        .execute();
+            } else {
+                sameDay.absorb(summary);
+                summary.delete();
+                sameDay.update();
+            }
+        }
+    }
+
+    /**
+     * A name that is not a valid http url keeps itself, in lower case, as its origin.
+     */
+    private static String originOf(String name) {
+        try {
+            return UrlNormalizer.normalize(new URL(name));
+        } catch (MalformedURLException e) {
+            return name.toLowerCase(Locale.ROOT);
+        }
+    }
+}
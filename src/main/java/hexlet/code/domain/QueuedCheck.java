@@ -0,0 +1,100 @@
+package hexlet.code.domain;
+
+import io.ebean.Model;
+import io.ebean.annotation.Index;
+import io.ebean.annotation.NotNull;
+import io.ebean.annotation.WhenCreated;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.time.Instant;
+
+/**
+ * A background check waiting in the {@code check_job} table. At most one exists per url.
+ *
+ * <p>{@code availableAt} is both the retry time and the lease: a node that claims the job
+ * moves it into the future and keeps extending it while the check runs, so the job only
+ * becomes claimable again once the check failed or its node stopped sending heartbeats.</p>
+ */
+@Entity
+@Table(name = "check_job", uniqueConstraints = @UniqueConstraint(columnNames = "url_id"))
+public final class QueuedCheck extends Model {
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    @Id
+    private long id;
+
+    @ManyToOne
+    @NotNull
+    private Url url;
+
+    @Index
+    @NotNull
+    private Instant availableAt;
+
+    private int attempts;
+
+    private String leaseOwner;
+
+    private String lastError;
+
+    @WhenCreated
+    private Instant createdAt;
+
+    public QueuedCheck(Url url, Instant availableAt) {
+        this.url = url;
+        this.availableAt = availableAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Url getUrl() {
+        return url;
+    }
+
+    public Instant getAvailableAt() {
+        return availableAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void claim(String owner, Instant leaseUntil) {
+        this.leaseOwner = owner;
+        this.availableAt = leaseUntil;
+        this.attempts++;
+    }
+
+    /**
+     * Gives the job back for another try at {@code retryAt}. A release that was not the site's
+     * fault (the local queue was full) does not use up an attempt.
+     */
+    public void release(Instant retryAt, String error, boolean countAttempt) {
+        if (!countAttempt) {
+            this.attempts--;
+        }
+        this.leaseOwner = null;
+        this.availableAt = retryAt;
+        this.lastError = error != null && error.length() > MAX_ERROR_LENGTH
+                ? error.substring(0, MAX_ERROR_LENGTH)
+                : error;
+    }
+}
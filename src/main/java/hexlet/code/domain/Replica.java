@@ -0,0 +1,47 @@
+package hexlet.code.domain;
+
+import io.avaje.config.Config;
+import io.ebean.DB;
+import io.ebean.Database;
+import io.ebean.DatabaseFactory;
+import io.ebean.config.DatabaseConfig;
+
+/**
+ * Database for reads that can live with a little replication lag: the paged, listed and
+ * exported data that is not cached. It is a read replica when {@code datasource.replica.url}
+ * is set and the default database otherwise.
+ *
+ * <p>Reads that fill the page cache stay on the primary. The cache is invalidated right after a
+ * write, and a lagging replica would put the old rows straight back for the whole time to live.</p>
+ */
+public final class Replica {
+
+    private static final String NAME = "replica";
+
+    private static volatile Database replica;
+
+    private Replica() {
+    }
+
+    public static Database get() {
+        Database database = replica;
+        return database != null ? database : DB.getDefault();
+    }
+
+    /**
+     * Connects to the replica if one is configured and returns it, or {@code null}.
+     */
+    public static synchronized Database start() {
+        if (replica == null && !Config.get("datasource.replica.url", "").isBlank()) {
+            DatabaseConfig config = new DatabaseConfig();
+            config.setName(NAME);
+            config.loadFromProperties();
+            config.setDefaultServer(false);
+            config.setRunMigration(false);
+            config.setDdlGenerate(false);
+            config.setDdlRun(false);
+            replica = DatabaseFactory.create(config);
+        }
+        return replica;
+    }
+}
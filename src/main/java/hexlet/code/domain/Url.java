@@ -1,8 +1,15 @@
 package hexlet.code.domain;
 
+import hexlet.code.domain.query.QUrl;
+import io.ebean.DuplicateKeyException;
 import io.ebean.Model;
+import io.ebean.bean.BeanCollection;
+import io.ebean.annotation.Index;
 import io.ebean.annotation.WhenCreated;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
@@ -11,19 +18,49 @@ import java.util.List;
 
 @Entity
 public final class Url extends Model {
+    private static final Counter LAZY_CHECK_LOADS = Metrics.counter("db.lazy.loads", "association", "Url.urlChecks");
+
     @Id
     private long id;
 
     private String name;
 
+    @Column(unique = true)
+    private String origin;
+
+    @Index
+    private String host;
+
     @WhenCreated
     private Instant createdAt;
 
     @OneToMany
     private List<UrlCheck> urlChecks;
 
-    public Url(String name) {
+    private Instant lastCheckAt;
+
+    private Integer lastStatusCode;
+
+    private String etag;
+
+    private String lastModified;
+
+    @Column(length = 64)
+    @Index
+    private String lastContentHash;
+
+    @Column(length = LatencyHistogram.BYTES)
+    private byte[] timingHistogram;
+
+    private Integer checkIntervalMinutes;
+
+    @Index
+    private Instant nextCheckAt;
+
+    public Url(String name, String origin) {
         this.name = name;
+        this.origin = origin;
+        this.host = UrlNormalizer.searchHost(origin);
     }
 
     public long getId() {
@@ -34,11 +71,114 @@ public final class Url extends Model {
         return this.name;
     }
 
+    public String getOrigin() {
+        return this.origin;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
     public Instant getCreatedAt() {
         return this.createdAt;
     }
 
     public List<UrlCheck> getUrlChecks() {
+        // An unpopulated collection here means one more query per url: an N+1 in a list page.
+        if (urlChecks instanceof BeanCollection && !((BeanCollection<?>) urlChecks).isPopulated()) {
+            LAZY_CHECK_LOADS.increment();
+        }
         return urlChecks;
     }
+
+    public Instant getLastCheckAt() {
+        return lastCheckAt;
+    }
+
+    public Integer getLastStatusCode() {
+        return lastStatusCode;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public String getLastContentHash() {
+        return lastContentHash;
+    }
+
+    /**
+     * Median response time over recent checks, or {@code null} before the first timed check.
+     */
+    public Integer getP50Millis() {
+        return LatencyHistogram.percentile(timingHistogram, 0.5);
+    }
+
+    public Integer getP95Millis() {
+        return LatencyHistogram.percentile(timingHistogram, 0.95);
+    }
+
+    public Integer getCheckIntervalMinutes() {
+        return checkIntervalMinutes;
+    }
+
+    public Instant getNextCheckAt() {
+        return nextCheckAt;
+    }
+
+    /**
+     * Sets how often the url is checked in the background; {@code null} turns it off.
+     */
+    public void scheduleChecks(Integer intervalMinutes, Instant firstCheckAt) {
+        this.checkIntervalMinutes = intervalMinutes;
+        this.nextCheckAt = intervalMinutes != null ? firstCheckAt : null;
+    }
+
+    public void setNextCheckAt(Instant nextCheckAt) {
+        this.nextCheckAt = nextCheckAt;
+    }
+
+    public void updateValidators(String newEtag, String newLastModified) {
+        this.etag = newEtag;
+        this.lastModified = newLastModified;
+    }
+
+    /**
+     * Adds the check to the url, which must be a fresh copy of the row locked for update: its
+     * response time always counts, but it only becomes the latest check if no newer one was
+     * recorded in the meantime. Returns whether it did.
+     */
+    public boolean recordCheck(UrlCheck urlCheck) {
+        Integer totalMillis = urlCheck.getTotalMillis();
+        if (totalMillis != null) {
+            this.timingHistogram = LatencyHistogram.record(timingHistogram, totalMillis);
+        }
+        if (lastCheckAt != null && lastCheckAt.isAfter(urlCheck.getCreatedAt())) {
+            return false;
+        }
+        this.lastCheckAt = urlCheck.getCreatedAt();
+        this.lastStatusCode = urlCheck.getStatusCode();
+        this.lastContentHash = urlCheck.getContent().getHash();
+        return true;
+    }
+
+    void assignOrigin(String newOrigin) {
+        this.origin = newOrigin;
+        this.host = UrlNormalizer.searchHost(newOrigin);
+    }
+
+    public Url insertOrGet() {
+        try {
+            insert();
+            return this;
+        } catch (DuplicateKeyException e) {
+            return new QUrl()
+                    .origin.equalTo(origin)
+                    .findOne();
+        }
+    }
 }
@@ -1,42 +1,96 @@
 package hexlet.code.domain;
 
 import io.ebean.Model;
+import io.ebean.annotation.Index;
 import io.ebean.annotation.NotNull;
-import io.ebean.annotation.WhenCreated;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
-import javax.persistence.Lob;
+import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import java.net.URI;
 import java.time.Instant;
+import java.util.List;
 
 @Entity
+@Index(columnNames = {"changed", "id"})
 public final class UrlCheck extends Model {
+    private static final int MAX_REDIRECT_CHAIN = 2000;
+
     @Id
     private long id;
 
-    @WhenCreated
+    // when the fetch finished rather than when the row was written, so it orders racing checks
+    @NotNull
+    @Index
     private Instant createdAt;
 
     private int statusCode;
 
-    private String title;
+    @ManyToOne
+    @NotNull
+    @JoinColumn(name = "content_hash")
+    private CheckContent content;
+
+    private boolean changed;
+
+    private Integer dnsMillis;
+
+    private Integer connectMillis;
+
+    private Integer tlsMillis;
+
+    private Integer ttfbMillis;
 
-    private String h1;
+    private Integer downloadMillis;
 
-    @Lob
-    private String description;
+    private Integer responseBytes;
+
+    @Column(length = MAX_REDIRECT_CHAIN)
+    private String redirectChain;
 
     @ManyToOne
     @NotNull
     private Url url;
 
     public UrlCheck(int statusCode, String title, String h1, String description, Url url) {
+        this(statusCode, new CheckContent(title, h1, description), url);
+    }
+
+    /**
+     * A check is changed when its content differs from the latest check of the url, or when
+     * it is the first one.
+     */
+    public UrlCheck(int statusCode, CheckContent content, Url url) {
         this.statusCode = statusCode;
-        this.title = title;
-        this.h1 = h1;
-        this.description = description;
+        this.content = content;
+        this.changed = !content.getHash().equals(url.getLastContentHash());
         this.url = url;
+        this.createdAt = Instant.now();
+    }
+
+    /**
+     * Records where the time of the fetch went; phases that did not happen are {@code null}.
+     * The redirect chain keeps as many locations as fit in its column.
+     */
+    public void recordTimings(Integer dns, Integer connect, Integer tls, Integer ttfb, Integer download,
+                              Integer bytes, List<URI> redirects) {
+        this.dnsMillis = dns;
+        this.connectMillis = connect;
+        this.tlsMillis = tls;
+        this.ttfbMillis = ttfb;
+        this.downloadMillis = download;
+        this.responseBytes = bytes;
+        StringBuilder chain = new StringBuilder();
+        for (URI location : redirects) {
+            String next = location.toString();
+            if (chain.length() + next.length() + 1 > MAX_REDIRECT_CHAIN) {
+                break;
+            }
+            chain.append(chain.length() > 0 ? " " : "").append(next);
+        }
+        this.redirectChain = chain.length() > 0 ? chain.toString() : null;
     }
 
     public long getId() {
@@ -51,16 +105,62 @@ public final class UrlCheck extends Model {
         return statusCode;
     }
 
+    public CheckContent getContent() {
+        return content;
+    }
+
     public String getTitle() {
-        return title;
+        return content.getTitle();
     }
 
     public String getH1() {
-        return h1;
+        return content.getH1();
     }
 
     public String getDescription() {
-        return description;
+        return content.getDescription();
+    }
+
+    public boolean isChanged() {
+        return changed;
+    }
+
+    public Integer getDnsMillis() {
+        return dnsMillis;
+    }
+
+    public Integer getConnectMillis() {
+        return connectMillis;
+    }
+
+    public Integer getTlsMillis() {
+        return tlsMillis;
+    }
+
+    public Integer getTtfbMillis() {
+        return ttfbMillis;
+    }
+
+    public Integer getDownloadMillis() {
+        return downloadMillis;
+    }
+
+    /**
+     * Time to first byte plus download, or {@code null} for checks made before timings were recorded.
+     */
+    public Integer getTotalMillis() {
+        return ttfbMillis != null && downloadMillis != null ? ttfbMillis + downloadMillis : null;
+    }
+
+    public Integer getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Locations the check was redirected to, separated by spaces, or {@code null}.
+     */
+    public String getRedirectChain() {
+        return redirectChain;
     }
 
     public Url getUrl() {
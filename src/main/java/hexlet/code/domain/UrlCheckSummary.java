@@ -0,0 +1,143 @@
+package hexlet.code.domain;
+
+import io.ebean.Model;
+import io.ebean.annotation.NotNull;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"url_id", "check_date"}))
+public final class UrlCheckSummary extends Model {
+    private static final int STATUS_CLASS = 100;
+
+    @Id
+    private long id;
+
+    @ManyToOne
+    @NotNull
+    private Url url;
+
+    @NotNull
+    private LocalDate checkDate;
+
+    private int checkCount;
+
+    private int status2xx;
+
+    private int status3xx;
+
+    private int status4xx;
+
+    private int status5xx;
+
+    private int statusOther;
+
+    private String firstTitle;
+
+    private String lastTitle;
+
+    private int titleChanges;
+
+    public UrlCheckSummary(Url url, LocalDate checkDate) {
+        this.url = url;
+        this.checkDate = checkDate;
+    }
+
+    public void add(int statusCode, String title) {
+        switch (statusCode / STATUS_CLASS) {
+            case 2:
+                status2xx++;
+                break;
+            case 3:
+                status3xx++;
+                break;
+            case 4:
+                status4xx++;
+                break;
+            case 5:
+                status5xx++;
+                break;
+            default:
+                statusOther++;
+        }
+        if (checkCount == 0) {
+            firstTitle = title;
+        } else if (!Objects.equals(lastTitle, title)) {
+            titleChanges++;
+        }
+        lastTitle = title;
+        checkCount++;
+    }
+
+    /**
+     * Adds the checks of another url's summary of the same day, as when two urls turn out to be
+     * one site; the titles of this summary stay the first and last ones.
+     */
+    void absorb(UrlCheckSummary other) {
+        checkCount += other.checkCount;
+        status2xx += other.status2xx;
+        status3xx += other.status3xx;
+        status4xx += other.status4xx;
+        status5xx += other.status5xx;
+        statusOther += other.statusOther;
+        titleChanges += other.titleChanges;
+        if (firstTitle == null) {
+            firstTitle = other.firstTitle;
+            lastTitle = other.lastTitle;
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Url getUrl() {
+        return url;
+    }
+
+    public LocalDate getCheckDate() {
+        return checkDate;
+    }
+
+    public int getCheckCount() {
+        return checkCount;
+    }
+
+    public int getStatus2xx() {
+        return status2xx;
+    }
+
+    public int getStatus3xx() {
+        return status3xx;
+    }
+
+    public int getStatus4xx() {
+        return status4xx;
+    }
+
+    public int getStatus5xx() {
+        return status5xx;
+    }
+
+    public int getStatusOther() {
+        return statusOther;
+    }
+
+    public String getFirstTitle() {
+        return firstTitle;
+    }
+
+    public String getLastTitle() {
+        return lastTitle;
+    }
+
+    public int getTitleChanges() {
+        return titleChanges;
+    }
+}
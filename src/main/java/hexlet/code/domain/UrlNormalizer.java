@@ -0,0 +1,53 @@
+package hexlet.code.domain;
+
+import java.net.IDN;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Set;
+
+public final class UrlNormalizer {
+
+    private static final Set<String> SCHEMES = Set.of("http", "https");
+
+    private UrlNormalizer() {
+    }
+
+    public static String normalize(URL url) throws MalformedURLException {
+        String scheme = url.getProtocol().toLowerCase(Locale.ROOT);
+        if (!SCHEMES.contains(scheme)) {
+            throw new MalformedURLException("Unsupported scheme: " + scheme);
+        }
+
+        String host = url.getHost();
+        if (host.endsWith(".")) {
+            host = host.substring(0, host.length() - 1);
+        }
+        if (host.isEmpty()) {
+            throw new MalformedURLException("Missing host: " + url);
+        }
+        try {
+            host = IDN.toASCII(host).toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedURLException("Invalid host: " + host);
+        }
+
+        int port = url.getPort();
+        if (port == -1 || port == url.getDefaultPort()) {
+            return scheme + "://" + host;
+        }
+        return scheme + "://" + host + ":" + port;
+    }
+
+    /**
+     * The host of an origin, or the start of one typed into the search, as it is matched:
+     * lower case and without scheme, {@code www.}, port and path.
+     */
+    public static String searchHost(String value) {
+        String host = value.trim().toLowerCase(Locale.ROOT).replaceFirst("^[a-z]+://", "");
+        if (host.startsWith("www.")) {
+            host = host.substring("www.".length());
+        }
+        return host.replaceFirst("[:/].*$", "");
+    }
+}
@@ -0,0 +1,109 @@
+package hexlet.code.domain;
+
+import io.ebean.Model;
+import io.ebean.annotation.NotNull;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.time.Instant;
+
+/**
+ * A page of the site that discovery found in its sitemaps, with the result of its latest check.
+ * Only the pages of the latest discovery are kept.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"url_id", "location"}))
+public final class UrlPage extends Model {
+    public static final int MAX_LOCATION_LENGTH = 2000;
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    @Id
+    private long id;
+
+    @ManyToOne
+    @NotNull
+    private Url url;
+
+    @Column(length = MAX_LOCATION_LENGTH)
+    @NotNull
+    private String location;
+
+    private Integer statusCode;
+
+    @ManyToOne
+    @JoinColumn(name = "content_hash")
+    private CheckContent content;
+
+    private Integer responseMillis;
+
+    private String error;
+
+    private Instant checkedAt;
+
+    public UrlPage(Url url, String location) {
+        this.url = url;
+        this.location = location;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Url getUrl() {
+        return url;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    public CheckContent getContent() {
+        return content;
+    }
+
+    public String getTitle() {
+        return content != null ? content.getTitle() : null;
+    }
+
+    public Integer getResponseMillis() {
+        return responseMillis;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Instant getCheckedAt() {
+        return checkedAt;
+    }
+
+    public void recordCheck(int newStatusCode, CheckContent newContent, Integer newResponseMillis) {
+        this.statusCode = newStatusCode;
+        this.content = newContent;
+        this.responseMillis = newResponseMillis;
+        this.error = null;
+        this.checkedAt = Instant.now();
+    }
+
+    /**
+     * Keeps the content of the previous check: the page is still there, it just did not answer.
+     */
+    public void recordFailure(String message) {
+        this.statusCode = null;
+        this.responseMillis = null;
+        this.error = message != null && message.length() > MAX_ERROR_LENGTH
+                ? message.substring(0, MAX_ERROR_LENGTH)
+                : message;
+        this.checkedAt = Instant.now();
+    }
+}
@@ -0,0 +1,80 @@
+package hexlet.code.metrics;
+
+import io.ebean.Database;
+import io.ebean.meta.MetaTimedMetric;
+import io.ebean.meta.ServerMetrics;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the query and transaction timings that Ebean collects itself.
+ *
+ * <p>Ebean hands out its counters as deltas and resets them on every collection, so they
+ * are accumulated here and read by function timers. Collection happens on scrape rather
+ * than on the request path.</p>
+ */
+public final class EbeanMetrics implements MeterBinder {
+
+    private final Database database;
+
+    private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+
+    private MeterRegistry registry;
+
+    public EbeanMetrics(Database database) {
+        this.database = database;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        this.registry = meterRegistry;
+    }
+
+    public synchronized void collect() {
+        if (registry == null) {
+            return;
+        }
+        ServerMetrics metrics = database.getMetaInfoManager().collectMetrics();
+        add("db.query", metrics.getQueryMetrics());
+        add("db.timed", metrics.getTimedMetrics());
+    }
+
+    private void add(String meterName, List<? extends MetaTimedMetric> metrics) {
+        for (MetaTimedMetric metric : metrics) {
+            Totals total = totals.computeIfAbsent(meterName + ':' + metric.getName(), key -> {
+                Totals newTotal = new Totals();
+                FunctionTimer.builder(meterName, newTotal, Totals::getCount, Totals::getTotalMicros,
+                                TimeUnit.MICROSECONDS)
+                        .tag("name", metric.getName())
+                        .register(registry);
+                return newTotal;
+            });
+            total.add(metric.getCount(), metric.getTotal());
+        }
+    }
+
+    private static final class Totals {
+        private volatile long count;
+
+        private volatile long totalMicros;
+
+        synchronized void add(long addCount, long addMicros) {
+            count += addCount;
+            totalMicros += addMicros;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        double getTotalMicros() {
+            return totalMicros;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package hexlet.code.metrics;
+
+import io.ebean.Database;
+import io.ebean.datasource.DataSourcePool;
+import io.ebean.datasource.PoolStatus;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Connection pool gauges of an Ebean database. A pool with {@code busy} at {@code max} and
+ * requests {@code waiting} is saturated; {@code db.pool.waits} counts every time a request
+ * had to wait for a connection.
+ */
+public final class PoolMetrics implements MeterBinder {
+
+    private final Database database;
+
+    public PoolMetrics(Database database) {
+        this.database = database;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(database.getDataSource() instanceof DataSourcePool)) {
+            return;
+        }
+        DataSourcePool pool = (DataSourcePool) database.getDataSource();
+        gauge(registry, "db.pool.busy", pool, PoolStatus::getBusy);
+        gauge(registry, "db.pool.free", pool, PoolStatus::getFree);
+        gauge(registry, "db.pool.waiting", pool, PoolStatus::getWaiting);
+        gauge(registry, "db.pool.min", pool, PoolStatus::getMinSize);
+        gauge(registry, "db.pool.max", pool, PoolStatus::getMaxSize);
+        gauge(registry, "db.pool.high.water", pool, PoolStatus::getHighWaterMark);
+        FunctionCounter.builder("db.pool.waits", pool, p -> p.getStatus(false).getWaitCount())
+                .tag("pool", database.getName())
+                .register(registry);
+    }
+
+    private void gauge(MeterRegistry registry, String name, DataSourcePool pool,
+                       ToDoubleFunction<PoolStatus> value) {
+        Gauge.builder(name, pool, p -> value.applyAsDouble(p.getStatus(false)))
+                .tag("pool", database.getName())
+                .register(registry);
+    }
+}
@@ -0,0 +1,59 @@
+package hexlet.code.metrics;
+
+import io.javalin.http.Handler;
+import io.javalin.http.HttpResponseException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps route handlers with a latency histogram per route and status class.
+ *
+ * <p>All timers of a route are registered up front, so recording a request is an array
+ * lookup and does not build any meter ids or tag strings.</p>
+ */
+public final class RouteMetrics {
+
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private static final int SERVER_ERROR = 500;
+
+    private final MeterRegistry registry;
+
+    public RouteMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Handler timed(String route, Handler handler) {
+        Timer[] timers = new Timer[STATUS_CLASSES.length];
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = Timer.builder("http.server.requests")
+                    .tag("route", route)
+                    .tag("status", STATUS_CLASSES[i])
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+        }
+
+        return ctx -> {
+            long start = System.nanoTime();
+            int status = SERVER_ERROR;
+            try {
+                handler.handle(ctx);
+                status = ctx.status();
+            } catch (HttpResponseException e) {
+                status = e.getStatus();
+                throw e;
+            } finally {
+                timers[statusClass(status)].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private static int statusClass(int status) {
+        return Math.min(Math.max(status / 100 - 1, 0), STATUS_CLASSES.length - 1);
+    }
+}
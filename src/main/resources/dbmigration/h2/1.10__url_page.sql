@@ -0,0 +1,17 @@
+-- apply changes
+create table url_page (
+  id                            bigint generated by default as identity not null,
+  url_id                        bigint not null,
+  location                      varchar(2000) not null,
+  status_code                   integer,
+  content_hash                  varchar(64),
+  response_millis               integer,
+  error                         varchar(255),
+  checked_at                    timestamp,
+  constraint uq_url_page_url_id_location unique (url_id,location),
+  constraint pk_url_page primary key (id)
+);
+
+create index ix_url_page_content_hash on url_page (content_hash);
+alter table url_page add constraint fk_url_page_url_id foreign key (url_id) references url (id) on delete restrict on update restrict;
+alter table url_page add constraint fk_url_page_content_hash foreign key (content_hash) references check_content (hash) on delete restrict on update restrict;
@@ -0,0 +1,21 @@
+-- apply changes
+create table url_check_summary (
+  id                            bigint generated by default as identity not null,
+  url_id                        bigint not null,
+  check_date                    date not null,
+  check_count                   integer not null,
+  status2xx                     integer not null,
+  status3xx                     integer not null,
+  status4xx                     integer not null,
+  status5xx                     integer not null,
+  status_other                  integer not null,
+  first_title                   varchar(255),
+  last_title                    varchar(255),
+  title_changes                 integer not null,
+  constraint uq_url_check_summary_url_id_check_date unique (url_id,check_date),
+  constraint pk_url_check_summary primary key (id)
+);
+
+create index ix_url_check_created_at on url_check (created_at);
+create index ix_url_check_summary_url_id on url_check_summary (url_id);
+alter table url_check_summary add constraint fk_url_check_summary_url_id foreign key (url_id) references url (id) on delete restrict on update restrict;
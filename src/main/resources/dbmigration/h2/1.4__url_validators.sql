@@ -0,0 +1,3 @@
+-- apply changes
+alter table url add column etag varchar(255);
+alter table url add column last_modified varchar(255);
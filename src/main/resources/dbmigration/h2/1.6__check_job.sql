@@ -0,0 +1,15 @@
+-- apply changes
+create table check_job (
+  id                            bigint generated by default as identity not null,
+  url_id                        bigint not null,
+  available_at                  timestamp not null,
+  attempts                      integer not null,
+  lease_owner                   varchar(255),
+  last_error                    varchar(255),
+  created_at                    timestamp not null,
+  constraint uq_check_job_url_id unique (url_id),
+  constraint pk_check_job primary key (id)
+);
+
+create index ix_check_job_available_at on check_job (available_at);
+alter table check_job add constraint fk_check_job_url_id foreign key (url_id) references url (id) on delete restrict on update restrict;
@@ -0,0 +1,9 @@
+-- apply changes
+alter table url add column timing_histogram varbinary(256);
+alter table url_check add column dns_millis integer;
+alter table url_check add column connect_millis integer;
+alter table url_check add column tls_millis integer;
+alter table url_check add column ttfb_millis integer;
+alter table url_check add column download_millis integer;
+alter table url_check add column response_bytes integer;
+alter table url_check add column redirect_chain varchar(2000);
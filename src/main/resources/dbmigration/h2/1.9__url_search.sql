@@ -0,0 +1,13 @@
+-- apply changes
+alter table url add column host varchar(255);
+
+-- as UrlNormalizer.searchHost does it
+update url set host = regexp_replace(lower(origin), '^[a-z]+://(www\.)?([^:/]*).*$', '$2');
+
+create index ix_url_host on url (host);
+create index ix_url_last_content_hash on url (last_content_hash);
+
+-- H2's native full-text index, kept up to date by triggers; searched with ft_search_data
+create alias if not exists ft_init for "org.h2.fulltext.FullText.init";
+call ft_init();
+call ft_create_index('PUBLIC', 'CHECK_CONTENT', 'TITLE,H1,DESCRIPTION');
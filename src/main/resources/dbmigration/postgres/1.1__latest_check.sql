@@ -0,0 +1,7 @@
+-- apply changes
+alter table url add column last_check_at timestamptz;
+alter table url add column last_status_code integer;
+
+update url set
+  last_check_at = (select c.created_at from url_check c where c.url_id = url.id order by c.id desc limit 1),
+  last_status_code = (select c.status_code from url_check c where c.url_id = url.id order by c.id desc limit 1);
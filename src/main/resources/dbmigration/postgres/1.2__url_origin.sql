@@ -0,0 +1,20 @@
+-- apply changes
+alter table url add column origin varchar(255);
+
+-- as UrlNormalizer does it, as far as plain SQL can: lower case, no trailing slash or dot and
+-- no default port. Names with other than printable ASCII need punycode and are left to
+-- OriginBackfill, which the app runs at startup for every url without an origin.
+update url set origin = lower(name) where name = regexp_replace(name, '[^ -~]', '');
+update url set origin = substr(origin, 1, length(origin) - 1) where origin like '%/';
+update url set origin = substr(origin, 1, length(origin) - 4) where origin like 'https://%:443';
+update url set origin = substr(origin, 1, length(origin) - 3) where origin like 'http://%:80';
+update url set origin = substr(origin, 1, length(origin) - 1) where origin like '%.';
+
+-- urls that now share an origin are merged into the oldest of them
+update url_check set url_id = (
+    select min(keep.id) from url keep, url dup where dup.id = url_check.url_id and keep.origin = dup.origin)
+  where url_id in (
+    select dup.id from url dup where exists (select 1 from url keep where keep.origin = dup.origin and keep.id < dup.id));
+delete from url where exists (select 1 from url keep where keep.origin = url.origin and keep.id < url.id);
+
+alter table url add constraint uq_url_origin unique (origin);
@@ -0,0 +1,7 @@
+-- apply changes
+alter table url add column check_interval_minutes integer;
+alter table url add column next_check_at timestamptz;
+
+-- existing urls stay unscheduled: background checks are turned on per url
+
+create index ix_url_next_check_at on url (next_check_at);
@@ -0,0 +1,40 @@
+-- apply changes
+create table check_content (
+  hash                          varchar(64) not null,
+  title                         varchar(255),
+  h1                            varchar(255),
+  description                   text,
+  constraint pk_check_content primary key (hash)
+);
+
+alter table url add column last_content_hash varchar(64);
+alter table url_check add column content_hash varchar(64);
+alter table url_check add column changed boolean default false not null;
+
+-- existing texts get the hash CheckContent.hashOf computes; length counts code points in a UTF8 database
+update url_check set content_hash = encode(sha256(convert_to(
+  coalesce(length(title) || ':' || title, '-') || '|' ||
+  coalesce(length(h1) || ':' || h1, '-') || '|' ||
+  coalesce(length(description) || ':' || description, '-'), 'UTF8')), 'hex');
+
+insert into check_content (hash, title, h1, description)
+select c.content_hash, c.title, c.h1, c.description
+from url_check c
+join (select min(id) as id from url_check group by content_hash) f on f.id = c.id;
+
+update url_check c set changed = p.changed
+from (select id, content_hash is distinct from lag(content_hash) over (partition by url_id order by id) as changed
+      from url_check) p
+where c.id = p.id;
+
+update url set last_content_hash = (
+  select c.content_hash from url_check c where c.url_id = url.id order by c.id desc limit 1);
+
+alter table url_check alter column content_hash set not null;
+alter table url_check drop column title;
+alter table url_check drop column h1;
+alter table url_check drop column description;
+
+create index ix_url_check_content_hash on url_check (content_hash);
+create index ix_url_check_changed_id on url_check (changed,id);
+alter table url_check add constraint fk_url_check_content_hash foreign key (content_hash) references check_content (hash) on delete restrict on update restrict;
@@ -0,0 +1,13 @@
+-- apply changes
+alter table url add column host varchar(255);
+
+-- as UrlNormalizer.searchHost does it
+update url set host = regexp_replace(lower(origin), '^[a-z]+://(www\.)?([^:/]*).*$', '\2');
+
+-- varchar_pattern_ops lets like 'prefix%' use the index whatever the collation
+create index ix_url_host on url (host varchar_pattern_ops);
+create index ix_url_last_content_hash on url (last_content_hash);
+
+-- the expression has to stay identical to the one in UrlSearch
+create index ix_check_content_search on check_content using gin (
+  to_tsvector('simple', coalesce(title, '') || ' ' || coalesce(h1, '') || ' ' || coalesce(description, '')));
@@ -1,30 +1,53 @@
 package hexlet.code;
 
+import hexlet.code.checker.CheckScheduler;
+import hexlet.code.checker.PageDiscovery;
+import hexlet.code.checker.SharedCheckQueue;
+import hexlet.code.controllers.TemplateRenderer;
 import hexlet.code.domain.Url;
 import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.UrlNormalizer;
+import hexlet.code.domain.UrlPage;
+import hexlet.code.domain.query.QQueuedCheck;
 import hexlet.code.domain.query.QUrl;
+import hexlet.code.domain.query.QUrlCheck;
+import hexlet.code.domain.query.QUrlPage;
 import io.ebean.DB;
 import io.ebean.Database;
 import io.ebean.Transaction;
 import io.javalin.Javalin;
 import kong.unirest.HttpResponse;
+import kong.unirest.JsonNode;
 import kong.unirest.Unirest;
+import kong.unirest.json.JSONArray;
 import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.thymeleaf.TemplateEngine;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -66,6 +89,26 @@ public final class AppTest {
         transaction.rollback();
     }
 
+    /**
+     * Waits until the url has no job in check_job and no check queued or running on this node,
+     * and returns the status of its last check here, or {@code null} if there was none.
+     */
+    private static String awaitCheck(long urlId) throws InterruptedException {
+        String status = null;
+        for (int attempt = 0; attempt < 50; attempt++) {
+            HttpResponse<JsonNode> response = Unirest
+                    .get(baseUrl + "/urls/" + urlId + "/checks/status")
+                    .asJson();
+            status = response.getStatus() == 200 ? response.getBody().getObject().getString("status") : null;
+            boolean queued = new QQueuedCheck().url.id.equalTo(urlId).exists();
+            if (!queued && !"QUEUED".equals(status) && !"RUNNING".equals(status)) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        return status;
+    }
+
     @Nested
     class RootTest {
 
@@ -76,6 +119,37 @@ public final class AppTest {
             assertThat(response.getBody()).contains("Анализатор страниц");
             assertThat(response.getBody()).contains("Бесплатно проверяйте сайты на SEO пригодность");
         }
+
+        @Test
+        void testMetrics() {
+            Unirest.get(baseUrl + "/urls").asString();
+            HttpResponse<String> response = Unirest.get(baseUrl + "/metrics").asString();
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getBody())
+                    .contains("http_server_requests_seconds_count{route=\"listUrls\",status=\"2xx\",}");
+            assertThat(response.getBody()).contains("jvm_memory_used_bytes");
+            assertThat(response.getBody()).contains("db_pool_busy{pool=", "db_pool_waits_total{pool=");
+        }
+
+        @Test
+        void testHealth() throws InterruptedException {
+            assertThat(Unirest.get(baseUrl + "/health/live").asString().getStatus()).isEqualTo(200);
+
+            HttpResponse<String> ready = Unirest.get(baseUrl + "/health/ready").asString();
+            for (int attempt = 0; attempt < 50 && ready.getStatus() != 200; attempt++) {
+                Thread.sleep(100);
+                ready = Unirest.get(baseUrl + "/health/ready").asString();
+            }
+            assertThat(ready.getStatus()).isEqualTo(200);
+            assertThat(ready.getBody()).contains("\"state\":\"READY\"", "\"http\":true");
+        }
+
+        @Test
+        void testTemplateWarmUp() {
+            TemplateEngine templateEngine = App.getTemplateEngine(true);
+            new TemplateRenderer(templateEngine, true).warmUp();
+            assertThat(templateEngine.getCacheManager().getTemplateCache().size()).isGreaterThanOrEqualTo(7);
+        }
     }
 
     @Nested
@@ -93,6 +167,59 @@ public final class AppTest {
             assertThat(body).contains("https://www.amazon.com/");
         }
 
+        @Test
+        void testListUrlsAfterCursor() {
+            HttpResponse<String> response = Unirest
+                    .get(baseUrl + "/urls")
+                    .queryString("after", 1)
+                    .asString();
+            String body = response.getBody();
+
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(body).doesNotContain("https://www.oreilly.com/");
+            assertThat(body).contains("https://www.amazon.com/");
+            assertThat(body).contains("before=2");
+        }
+
+        @Test
+        void testSearchUrls() {
+            HttpResponse<String> byHost = Unirest
+                    .get(baseUrl + "/urls")
+                    .queryString("q", "https://www.oreil")
+                    .asString();
+
+            assertThat(byHost.getStatus()).isEqualTo(200);
+            assertThat(byHost.getBody()).contains("https://www.oreilly.com/");
+            assertThat(byHost.getBody()).doesNotContain("https://www.amazon.com/");
+
+            Url url = new Url("https://search-example.com", "https://search-example.com");
+            try (Transaction committed = database.createTransaction()) {
+                database.save(url, committed);
+                UrlCheck check = new UrlCheck(200, "Zanzibar spice market", "Spices", null, url);
+                database.save(check.getContent(), committed);
+                database.save(check, committed);
+                url.recordCheck(check);
+                database.update(url, committed);
+                committed.commit();
+            }
+
+            HttpResponse<String> byTitle = Unirest
+                    .get(baseUrl + "/urls")
+                    .queryString("q", "zanzibar")
+                    .asString();
+
+            assertThat(byTitle.getStatus()).isEqualTo(200);
+            assertThat(byTitle.getBody()).contains("https://search-example.com");
+            assertThat(byTitle.getBody()).doesNotContain("https://www.oreilly.com/");
+
+            HttpResponse<String> nothing = Unirest
+                    .get(baseUrl + "/urls")
+                    .queryString("q", "qwertyuiop")
+                    .asString();
+
+            assertThat(nothing.getBody()).contains("Ничего не найдено");
+        }
+
         @Test
         void testShowUrl() {
             HttpResponse<String> response = Unirest
@@ -116,6 +243,58 @@ public final class AppTest {
             assertThat(body).contains(createdAt);
         }
 
+        @Test
+        void testShowUrlNotModified() {
+            HttpResponse<String> response = Unirest
+                    .get(baseUrl + "/urls/1")
+                    .asString();
+            String etag = response.getHeaders().getFirst("ETag");
+
+            assertThat(etag).startsWith("W/\"");
+
+            HttpResponse<String> notModified = Unirest
+                    .get(baseUrl + "/urls/1")
+                    .header("If-None-Match", etag)
+                    .asString();
+
+            assertThat(notModified.getStatus()).isEqualTo(304);
+            assertThat(notModified.getBody()).isEmpty();
+
+            HttpResponse<String> modified = Unirest
+                    .get(baseUrl + "/urls/1")
+                    .header("If-None-Match", "W/\"stale\"")
+                    .asString();
+
+            assertThat(modified.getStatus()).isEqualTo(200);
+        }
+
+        @Test
+        void testWebjarCacheHeaders() {
+            HttpResponse<String> response = Unirest
+                    .get(baseUrl + "/webjars/bootstrap/5.1.3/css/bootstrap.min.css")
+                    .asString();
+
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getHeaders().getFirst("Cache-Control")).contains("immutable");
+        }
+
+        @Test
+        void testListChecksFragment() {
+            HttpResponse<String> response = Unirest
+                    .get(baseUrl + "/urls/1/checks")
+                    .asString();
+
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getBody()).doesNotContain("<html");
+            assertThat(response.getHeaders().containsKey("X-Next-Before")).isFalse();
+        }
+
+        @Test
+        void testListChecksOfMissingUrl() {
+            assertThat(Unirest.get(baseUrl + "/urls/100000/checks").asString().getStatus()).isEqualTo(404);
+            assertThat(Unirest.get(baseUrl + "/urls/abc/checks").asString().getStatus()).isEqualTo(400);
+        }
+
         @Test
         void testCreateValidUrlWithoutPort() {
             String site = "https://hexlet.io";
@@ -203,6 +382,37 @@ public final class AppTest {
             assertThat(urlsAfter.get(0).getName()).isEqualTo(name);
         }
 
+        @Test
+        void testCreateUrlWithSameOrigin() {
+            HttpResponse<String> responsePost1 = Unirest
+                    .post(baseUrl + "/urls")
+                    .field("url", "https://Example.com:443/some/path")
+                    .asString();
+
+            assertThat(responsePost1.getStatus()).isEqualTo(302);
+
+            HttpResponse<String> responsePost2 = Unirest
+                    .post(baseUrl + "/urls")
+                    .field("url", "https://example.com")
+                    .asString();
+
+            assertThat(responsePost2.getStatus()).isEqualTo(302);
+
+            HttpResponse<String> responsePost3 = Unirest
+                    .post(baseUrl + "/urls")
+                    .field("url", "https://evil-example.com")
+                    .asString();
+
+            assertThat(responsePost3.getStatus()).isEqualTo(302);
+
+            List<Url> urls = new QUrl()
+                    .origin.in("https://example.com", "https://evil-example.com")
+                    .findList();
+
+            assertThat(urls).extracting(Url::getOrigin)
+                    .containsExactlyInAnyOrder("https://example.com", "https://evil-example.com");
+        }
+
         @Test
         void testCreateMalformedUrl() {
             String site = "ttps://www.oreilly.com";
@@ -222,7 +432,7 @@ public final class AppTest {
         }
 
         @Test
-        void testUrlCheck() throws IOException {
+        void testUrlCheck() throws IOException, InterruptedException {
             // create valid Url
             HttpUrl mockUrl = server.url("/nonexistentsite.com");
             String validUrl = mockUrl.scheme() + "://" + mockUrl.host() + ":" + mockUrl.port();
@@ -239,6 +449,9 @@ public final class AppTest {
                     .name.equalTo(validUrl)
                     .findOne();
 
+            // render the url page once, so the check below has to invalidate the cached one
+            assertThat(Unirest.get(baseUrl + "/urls/" + url.getId()).asString().getStatus()).isEqualTo(200);
+
             // check url
             String body = Files.readString(Path.of("src/test/resources/Site.html"));
             server.enqueue(new MockResponse().setBody(body));
@@ -250,6 +463,8 @@ public final class AppTest {
             assertThat(responsePost2.getStatus()).isEqualTo(302);
             assertThat(responsePost2.getHeaders().getFirst("Location")).isEqualTo("/urls/" + url.getId());
 
+            assertThat(awaitCheck(url.getId())).isEqualTo("DONE");
+
             UrlCheck lastCheck = url.getUrlChecks().get(url.getUrlChecks().size() - 1);
 
             String createdAt = formatter.format(lastCheck.getCreatedAt());
@@ -275,6 +490,13 @@ public final class AppTest {
             assertThat(body1).contains("Дата проверки");
             assertThat(body1).contains(createdAt);
 
+            // the fetch was timed and counted towards the response time percentiles
+            assertThat(lastCheck.getTtfbMillis()).isNotNull();
+            assertThat(lastCheck.getDownloadMillis()).isNotNull();
+            assertThat(lastCheck.getResponseBytes()).isEqualTo(body.getBytes(StandardCharsets.UTF_8).length);
+            assertThat(new QUrl().id.equalTo(url.getId()).findOne().getP50Millis()).isNotNull();
+            assertThat(body1).contains("Время ответа", "p95");
+
             // urls table is updated with the last check for url
             HttpResponse<String> response4 = Unirest
                     .get(baseUrl + "/urls/")
@@ -290,5 +512,328 @@ public final class AppTest {
             assertThat(body2).contains("Код ответа");
             assertThat(body2).contains(statusCode);
         }
+
+        @Test
+        void testConditionalUrlCheck() throws IOException, InterruptedException {
+            MockWebServer site = new MockWebServer();
+            site.start();
+            try {
+                HttpUrl mockUrl = site.url("/");
+                String siteUrl = mockUrl.scheme() + "://" + mockUrl.host() + ":" + mockUrl.port();
+                Unirest.post(baseUrl + "/urls")
+                        .field("url", siteUrl)
+                        .asString();
+                Url url = new QUrl()
+                        .name.equalTo(siteUrl)
+                        .findOne();
+
+                String body = Files.readString(Path.of("src/test/resources/Site.html"));
+                site.enqueue(new MockResponse().setBody(body).setHeader("ETag", "\"v1\""));
+                site.enqueue(new MockResponse().setResponseCode(304));
+
+                Unirest.post(baseUrl + "/urls/" + url.getId() + "/checks").asString();
+                assertThat(awaitCheck(url.getId())).isEqualTo("DONE");
+                Unirest.post(baseUrl + "/urls/" + url.getId() + "/checks").asString();
+                assertThat(awaitCheck(url.getId())).isEqualTo("DONE");
+
+                assertThat(site.takeRequest().getHeader("If-None-Match")).isNull();
+                assertThat(site.takeRequest().getHeader("If-None-Match")).isEqualTo("\"v1\"");
+
+                List<UrlCheck> urlChecks = new QUrlCheck()
+                        .url.id.equalTo(url.getId())
+                        .orderBy()
+                        .id.asc()
+                        .findList();
+
+                assertThat(urlChecks).extracting(UrlCheck::getStatusCode).containsExactly(200, 304);
+                assertThat(urlChecks).extracting(UrlCheck::getTitle)
+                        .containsExactly("Non-existent site", "Non-existent site");
+            } finally {
+                site.shutdown();
+            }
+        }
+
+        @Test
+        void testDiscoverPages() throws IOException, InterruptedException {
+            MockWebServer site = new MockWebServer();
+            site.start();
+            try {
+                HttpUrl mockUrl = site.url("/");
+                String siteUrl = mockUrl.scheme() + "://" + mockUrl.host() + ":" + mockUrl.port();
+                String body = Files.readString(Path.of("src/test/resources/Site.html"));
+                AtomicInteger robotsRequests = new AtomicInteger();
+                site.setDispatcher(new Dispatcher() {
+                    @Override
+                    public MockResponse dispatch(RecordedRequest request) {
+                        switch (String.valueOf(request.getPath())) {
+                            case "/robots.txt":
+                                robotsRequests.incrementAndGet();
+                                return new MockResponse().setBody("User-agent: *\nDisallow: /private\n"
+                                        + "Allow: /private/open\nCrawl-delay: 0.05\n\n"
+                                        + "User-agent: other-bot\nDisallow: /\n\n"
+                                        + "Sitemap: " + siteUrl + "/sitemap_index.xml\n");
+                            case "/sitemap_index.xml":
+                                return new MockResponse().setBody("<?xml version=\"1.0\"?>"
+                                        + "<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"
+                                        + "<sitemap><loc>" + siteUrl + "/sitemap.xml</loc></sitemap>"
+                                        + "</sitemapindex>");
+                            case "/sitemap.xml":
+                                return new MockResponse().setBody("<?xml version=\"1.0\"?>"
+                                        + "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"
+                                        + "<url><loc>" + siteUrl + "/about</loc></url>"
+                                        + "<url><loc>" + siteUrl + "/private/secret</loc></url>"
+                                        + "<url><loc>" + siteUrl + "/private/open</loc></url>"
+                                        + "<url><loc>https://elsewhere.example/page</loc></url>"
+                                        + "<url><loc>" + siteUrl + "/missing</loc></url>"
+                                        + "</urlset>");
+                            case "/about":
+                            case "/private/open":
+                                return new MockResponse().setBody(body);
+                            default:
+                                return new MockResponse().setResponseCode(404);
+                        }
+                    }
+                });
+                Unirest.post(baseUrl + "/urls")
+                        .field("url", siteUrl)
+                        .asString();
+                Url url = new QUrl()
+                        .name.equalTo(siteUrl)
+                        .findOne();
+
+                PageDiscovery pageDiscovery = app.attribute(PageDiscovery.class);
+                for (int run = 0; run < 2; run++) {
+                    HttpResponse<String> response = Unirest
+                            .post(baseUrl + "/urls/" + url.getId() + "/pages")
+                            .asString();
+                    assertThat(response.getStatus()).isEqualTo(302);
+                    for (int attempt = 0; attempt < 50 && pageDiscovery.isRunning(url.getId()); attempt++) {
+                        Thread.sleep(100);
+                    }
+                    assertThat(pageDiscovery.isRunning(url.getId())).isFalse();
+                }
+
+                // the second discovery updated the same pages with the robots.txt read by the first
+                List<UrlPage> pages = new QUrlPage()
+                        .url.id.equalTo(url.getId())
+                        .orderBy()
+                        .location.asc()
+                        .findList();
+                assertThat(pages).extracting(UrlPage::getLocation)
+                        .containsExactly(siteUrl + "/about", siteUrl + "/missing", siteUrl + "/private/open");
+                assertThat(pages).extracting(UrlPage::getStatusCode).containsExactly(200, 404, 200);
+                assertThat(pages.get(0).getTitle()).isEqualTo("Non-existent site");
+                assertThat(robotsRequests.get()).isEqualTo(1);
+
+                String show = Unirest.get(baseUrl + "/urls/" + url.getId()).asString().getBody();
+                assertThat(show).contains("Страницы сайта", siteUrl + "/about", "Non-existent site");
+            } finally {
+                site.shutdown();
+            }
+        }
+
+        @Test
+        void testScheduledUrlCheck() throws IOException, InterruptedException {
+            HttpUrl mockUrl = server.url("/");
+            String siteUrl = mockUrl.scheme() + "://" + mockUrl.host() + ":" + mockUrl.port() + "/scheduled";
+            Unirest.post(baseUrl + "/urls")
+                    .field("url", siteUrl)
+                    .asString();
+            Url url = new QUrl()
+                    .origin.equalTo(UrlNormalizer.normalize(new URL(siteUrl)))
+                    .findOne();
+
+            HttpResponse<String> response = Unirest
+                    .post(baseUrl + "/urls/" + url.getId() + "/schedule")
+                    .field("interval", "15")
+                    .asString();
+
+            assertThat(response.getStatus()).isEqualTo(302);
+            url.refresh();
+            assertThat(url.getCheckIntervalMinutes()).isEqualTo(15);
+            assertThat(url.getNextCheckAt()).isBetween(Instant.now().plusSeconds(13 * 60),
+                    Instant.now().plusSeconds(17 * 60));
+
+            // written outside the test transaction, so the check worker is not blocked by its row lock
+            url.setNextCheckAt(Instant.now().minusSeconds(1));
+            try (Transaction due = database.createTransaction()) {
+                database.update(url, due);
+                due.commit();
+            }
+            server.enqueue(new MockResponse().setBody(Files.readString(Path.of("src/test/resources/Site.html"))));
+
+            assertThat(app.attribute(CheckScheduler.class).poll()).isEqualTo(1);
+            app.attribute(SharedCheckQueue.class).claim();
+            assertThat(awaitCheck(url.getId())).isEqualTo("DONE");
+            url.refresh();
+            assertThat(url.getNextCheckAt()).isAfter(Instant.now());
+
+            Unirest.post(baseUrl + "/urls/" + url.getId() + "/schedule")
+                    .field("interval", "0")
+                    .asString();
+            url.refresh();
+            assertThat(url.getCheckIntervalMinutes()).isNull();
+            assertThat(url.getNextCheckAt()).isNull();
+        }
+    }
+
+    @Nested
+    class ApiTest {
+
+        @Test
+        void testCreateUrls() {
+            HttpResponse<JsonNode> response = Unirest
+                    .post(baseUrl + "/api/v1/urls")
+                    .header("Content-Type", "application/json")
+                    .body("{\"urls\": [\"https://api-example.com/a\", \"https://api-example.com/b\","
+                            + " \"https://www.amazon.com/\", \"ttps://broken\"]}")
+                    .asJson();
+
+            assertThat(response.getStatus()).isEqualTo(201);
+            JSONArray results = response.getBody().getObject().getJSONArray("results");
+            assertThat(results.getJSONObject(0).getString("status")).isEqualTo("created");
+            assertThat(results.getJSONObject(1).getString("status")).isEqualTo("exists");
+            assertThat(results.getJSONObject(2).getString("status")).isEqualTo("exists");
+            assertThat(results.getJSONObject(3).getString("status")).isEqualTo("invalid");
+
+            Url url = new QUrl()
+                    .origin.equalTo("https://api-example.com")
+                    .findOne();
+
+            assertThat(url).isNotNull();
+            assertThat(results.getJSONObject(0).getLong("id")).isEqualTo(url.getId());
+            assertThat(results.getJSONObject(1).getLong("id")).isEqualTo(url.getId());
+            assertThat(url.getNextCheckAt()).isNotNull();
+        }
+
+        @Test
+        void testCreateUrlsWithoutArray() {
+            HttpResponse<String> response = Unirest
+                    .post(baseUrl + "/api/v1/urls")
+                    .header("Content-Type", "application/json")
+                    .body("{\"urls\": \"https://example.com\"}")
+                    .asString();
+
+            assertThat(response.getStatus()).isEqualTo(400);
+        }
+
+        @Test
+        void testListUrls() {
+            HttpResponse<String> response = Unirest
+                    .get(baseUrl + "/api/v1/urls")
+                    .queryString("limit", 1)
+                    .asString();
+
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getHeaders().getFirst("Content-Type")).startsWith("application/x-ndjson");
+            assertThat(response.getBody().lines()).hasSize(1);
+            assertThat(response.getBody()).contains("\"id\":1", "https://www.oreilly.com");
+
+            HttpResponse<String> nextPage = Unirest
+                    .get(baseUrl + "/api/v1/urls")
+                    .queryString("after", 1)
+                    .queryString("limit", 1)
+                    .asString();
+
+            assertThat(nextPage.getBody()).contains("https://www.amazon.com").doesNotContain("oreilly");
+        }
+
+        @Test
+        void testShowUrl() {
+            HttpResponse<JsonNode> response = Unirest
+                    .get(baseUrl + "/api/v1/urls/1")
+                    .asJson();
+
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getBody().getObject().getString("name")).isEqualTo("https://www.oreilly.com");
+            assertThat(Unirest.get(baseUrl + "/api/v1/urls/100000").asString().getStatus()).isEqualTo(404);
+        }
+
+        @Test
+        void testCheckUrls() throws InterruptedException {
+            HttpUrl mockUrl = server.url("/");
+            String siteUrl = mockUrl.scheme() + "://" + mockUrl.host() + ":" + mockUrl.port();
+            long id = Unirest
+                    .post(baseUrl + "/api/v1/urls")
+                    .header("Content-Type", "application/json")
+                    .body("{\"urls\": [\"" + siteUrl + "\"]}")
+                    .asJson()
+                    .getBody().getObject().getJSONArray("results").getJSONObject(0).getLong("id");
+            server.enqueue(new MockResponse().setBody("<title>api</title>"));
+
+            HttpResponse<JsonNode> response = Unirest
+                    .post(baseUrl + "/api/v1/checks")
+                    .header("Content-Type", "application/json")
+                    .body("{\"ids\": [" + id + ", 100000]}")
+                    .asJson();
+
+            assertThat(response.getStatus()).isEqualTo(202);
+            JSONArray results = response.getBody().getObject().getJSONArray("results");
+            assertThat(results.getJSONObject(1).getString("status")).isEqualTo("NOT_FOUND");
+            assertThat(awaitCheck(id)).isEqualTo("DONE");
+
+            HttpResponse<String> checks = Unirest
+                    .get(baseUrl + "/api/v1/urls/" + id + "/checks")
+                    .asString();
+
+            assertThat(checks.getStatus()).isEqualTo(200);
+            assertThat(checks.getBody()).contains("\"statusCode\":200", "\"title\":\"api\"");
+        }
+
+        @Test
+        void testExportChecks() throws IOException {
+            Url url = new Url("https://export-example.com", "https://export-example.com");
+            try (Transaction committed = database.createTransaction()) {
+                database.save(url, committed);
+                for (UrlCheck check : List.of(
+                        new UrlCheck(200, "Export, \"quoted\"", "h1", "line\nbreak", url),
+                        new UrlCheck(404, "Not found", null, null, url))) {
+                    database.save(check.getContent(), committed);
+                    database.save(check, committed);
+                }
+                committed.commit();
+            }
+
+            HttpResponse<String> csv = Unirest
+                    .get(baseUrl + "/api/v1/checks/export")
+                    .queryString("status", "2xx")
+                    .queryString("from", LocalDate.now(ZoneOffset.UTC).minusDays(1).toString())
+                    .asString();
+
+            assertThat(csv.getStatus()).isEqualTo(200);
+            assertThat(csv.getHeaders().getFirst("Content-Type")).startsWith("text/csv");
+            assertThat(csv.getBody())
+                    .startsWith("id,url_id,url,status_code,title,h1,description,created_at,changed\r\n");
+            assertThat(csv.getBody()).contains(",https://export-example.com,200,\"Export, \"\"quoted\"\"\",h1,"
+                    + "\"line\nbreak\",");
+            assertThat(csv.getBody()).doesNotContain("Not found");
+
+            HttpResponse<byte[]> ndjson = Unirest
+                    .get(baseUrl + "/api/v1/checks/export")
+                    .queryString("format", "ndjson")
+                    .queryString("status", 404)
+                    .queryString("gzip", true)
+                    .asBytes();
+
+            assertThat(ndjson.getStatus()).isEqualTo(200);
+            String body;
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(ndjson.getBody()))) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            assertThat(body).contains("\"url\":\"https://export-example.com\",\"statusCode\":404");
+            assertThat(body).doesNotContain("quoted");
+            assertThat(body).contains("\"changed\":true");
+
+            HttpResponse<String> changes = Unirest
+                    .get(baseUrl + "/api/v1/changes")
+                    .asString();
+
+            assertThat(changes.getStatus()).isEqualTo(200);
+            assertThat(changes.getBody())
+                    .contains("\"url\":\"https://export-example.com\"", "\"title\":\"Not found\"");
+
+            assertThat(Unirest.get(baseUrl + "/api/v1/checks/export").queryString("from", "yesterday").asString()
+                    .getStatus()).isEqualTo(400);
+        }
     }
 }
@@ -0,0 +1,36 @@
+package hexlet.code;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class LifecycleTest {
+
+    @Test
+    void testReadyOnceEveryStepWarmedUp() throws InterruptedException {
+        Lifecycle lifecycle = new Lifecycle("templates", "http");
+
+        lifecycle.warmedUp("templates");
+        assertThat(lifecycle.awaitReady(Duration.ofMillis(10))).isFalse();
+        lifecycle.warmedUp("http");
+
+        assertThat(lifecycle.awaitReady(Duration.ofMillis(10))).isTrue();
+        assertThat(lifecycle.getState()).isEqualTo(Lifecycle.State.READY);
+    }
+
+    @Test
+    void testFailedStepEndsTheWait() throws InterruptedException {
+        Lifecycle lifecycle = new Lifecycle("templates", "http");
+        lifecycle.warmedUp("templates");
+
+        lifecycle.warmUpFailed("http", new IOException("Connection refused"));
+
+        assertThat(lifecycle.awaitReady(Duration.ofMinutes(1))).isFalse();
+        assertThat(lifecycle.getState()).isEqualTo(Lifecycle.State.STARTING);
+        assertThat(lifecycle.getFailure()).isEqualTo("http: Connection refused");
+        assertThat(lifecycle.getStatus()).containsEntry("failure", "http: Connection refused");
+    }
+}
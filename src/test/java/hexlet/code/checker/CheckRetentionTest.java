@@ -0,0 +1,142 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.CheckContent;
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.UrlCheckSummary;
+import hexlet.code.domain.UrlPage;
+import hexlet.code.domain.query.QCheckContent;
+import hexlet.code.domain.query.QUrlCheck;
+import hexlet.code.domain.query.QUrlCheckSummary;
+import io.ebean.DB;
+import io.ebean.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class CheckRetentionTest {
+
+    private static UrlCheck save(Url url, int statusCode, String title, Instant createdAt) {
+        UrlCheck urlCheck = new UrlCheck(statusCode, title, null, null, url);
+        if (!new QCheckContent().hash.equalTo(urlCheck.getContent().getHash()).exists()) {
+            urlCheck.getContent().save();
+        }
+        urlCheck.save();
+        DB.sqlUpdate("update url_check set created_at = :createdAt where id = :id")
+                .setParameter("createdAt", createdAt)
+                .setParameter("id", urlCheck.getId())
+                .execute();
+        return urlCheck;
+    }
+
+    @Test
+    void testRollUpSummarizesAndDeletesOldChecks() {
+        Url url = new Url("https://retention.example.com", "https://retention.example.com").insertOrGet();
+        Instant oldDay = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(100, ChronoUnit.DAYS);
+        List<Long> oldChecks = new ArrayList<>();
+        oldChecks.add(save(url, 200, "Old home", oldDay.plusSeconds(60)).getId());
+        oldChecks.add(save(url, 404, "Not found", oldDay.plusSeconds(120)).getId());
+        oldChecks.add(save(url, 200, "New home", oldDay.plusSeconds(180)).getId());
+        oldChecks.add(save(url, 500, "New home", oldDay.plus(1, ChronoUnit.DAYS)).getId());
+        UrlCheck recent = save(url, 200, "New home", Instant.now());
+        List<Long> changed = new ArrayList<>();
+
+        long deleted = new CheckRetention(90, 2, changed::add).rollUp();
+
+        assertThat(deleted).isGreaterThanOrEqualTo(oldChecks.size());
+        assertThat(new QUrlCheck().id.in(oldChecks).exists()).isFalse();
+        assertThat(new QUrlCheck().id.equalTo(recent.getId()).exists()).isTrue();
+        assertThat(changed).contains(url.getId());
+        assertThat(new QCheckContent().hash.equalTo(hashOf("Old home")).exists()).isFalse();
+        assertThat(new QCheckContent().hash.equalTo(hashOf("Not found")).exists()).isFalse();
+        assertThat(new QCheckContent().hash.equalTo(hashOf("New home")).exists()).isTrue();
+
+        List<UrlCheckSummary> summaries = new QUrlCheckSummary()
+                .url.id.equalTo(url.getId())
+                .orderBy()
+                .checkDate.asc()
+                .findList();
+        assertThat(summaries).hasSize(2);
+
+        UrlCheckSummary first = summaries.get(0);
+        assertThat(first.getCheckDate()).isEqualTo(LocalDate.ofInstant(oldDay, ZoneOffset.UTC));
+        assertThat(first.getCheckCount()).isEqualTo(3);
+        assertThat(first.getStatus2xx()).isEqualTo(2);
+        assertThat(first.getStatus4xx()).isEqualTo(1);
+        assertThat(first.getFirstTitle()).isEqualTo("Old home");
+        assertThat(first.getLastTitle()).isEqualTo("New home");
+        assertThat(first.getTitleChanges()).isEqualTo(2);
+
+        UrlCheckSummary second = summaries.get(1);
+        assertThat(second.getCheckCount()).isEqualTo(1);
+        assertThat(second.getStatus5xx()).isEqualTo(1);
+    }
+
+    @Test
+    void testRollUpKeepsContentsStillReferenced() {
+        Url url = new Url("https://retention-refs.example.com", "https://retention-refs.example.com").insertOrGet();
+        Instant oldDay = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(100, ChronoUnit.DAYS);
+        UrlCheck latest = save(url, 200, "Latest of a quiet site", oldDay.plusSeconds(60));
+        UrlCheck paged = save(url, 200, "Also a page", oldDay.plusSeconds(120));
+        DB.sqlUpdate("update url set last_content_hash = :hash where id = :id")
+                .setParameter("hash", latest.getContent().getHash())
+                .setParameter("id", url.getId())
+                .execute();
+        UrlPage page = new UrlPage(url, "https://retention-refs.example.com/page");
+        page.recordCheck(200, paged.getContent(), 10);
+        page.save();
+
+        new CheckRetention(90, 10, id -> { }).rollUp();
+
+        assertThat(new QUrlCheck().url.id.equalTo(url.getId()).exists()).isFalse();
+        assertThat(new QCheckContent().hash.equalTo(latest.getContent().getHash()).exists()).isTrue();
+        assertThat(new QCheckContent().hash.equalTo(paged.getContent().getHash()).exists()).isTrue();
+    }
+
+    @Test
+    void testCheckSavedWhileRetentionDeletesItsContent() throws Exception {
+        Url url = new Url("https://retention-race.example.com", "https://retention-race.example.com").insertOrGet();
+        CheckContent content = new CheckContent("Deleted under the check", null, null);
+        content.save();
+        UrlCheck urlCheck = new UrlCheck(200, content, url);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> saved;
+        try (Transaction retention = DB.beginTransaction()) {
+            // what retention does for an orphan content: lock the row, then delete it
+            new QCheckContent().hash.equalTo(content.getHash()).forUpdate().findOne();
+            DB.sqlUpdate("delete from check_content where hash = :hash")
+                    .setParameter("hash", content.getHash())
+                    .execute();
+
+            // the save still sees the committed row, skips storing it and waits for the lock
+            saved = executor.submit(() -> new CheckStore(id -> { }).save(urlCheck));
+            Thread.sleep(200);
+            assertThat(saved.isDone()).isFalse();
+            retention.commit();
+        }
+        try {
+            saved.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(new QCheckContent().hash.equalTo(content.getHash()).exists()).isTrue();
+        UrlCheck stored = new QUrlCheck().id.equalTo(urlCheck.getId()).findOne();
+        assertThat(stored.getTitle()).isEqualTo("Deleted under the check");
+    }
+
+    private static String hashOf(String title) {
+        return new CheckContent(title, null, null).getHash();
+    }
+}
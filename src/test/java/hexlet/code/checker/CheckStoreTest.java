@@ -0,0 +1,78 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlCheck;
+import hexlet.code.domain.query.QUrl;
+import hexlet.code.domain.query.QUrlCheck;
+import io.ebean.DB;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class CheckStoreTest {
+
+    private final CheckStore store = new CheckStore(id -> { });
+
+    @Test
+    void testOlderCheckDoesNotReplaceLatest() throws InterruptedException {
+        Url url = new Url("https://out-of-order.example.com", "https://out-of-order.example.com").insertOrGet();
+        UrlCheck older = new UrlCheck(200, "Older", null, null, url);
+        Thread.sleep(5);
+        UrlCheck newer = new UrlCheck(404, "Newer", null, null, url);
+
+        // the newer check wins the race to the database
+        store.save(newer);
+        store.save(older);
+
+        Url saved = new QUrl().id.equalTo(url.getId()).findOne();
+        assertThat(saved.getLastStatusCode()).isEqualTo(404);
+        assertThat(saved.getLastContentHash()).isEqualTo(newer.getContent().getHash());
+        assertThat(saved.getLastCheckAt()).isAfter(older.getCreatedAt());
+        assertThat(new QUrlCheck().url.id.equalTo(url.getId()).findCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testConcurrentChecksAllCountInHistogram() throws Exception {
+        Url url = new Url("https://concurrent.example.com", "https://concurrent.example.com").insertOrGet();
+        int checks = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(checks);
+        try {
+            List<Future<?>> saves = new ArrayList<>();
+            for (int i = 0; i < checks; i++) {
+                UrlCheck urlCheck = new UrlCheck(200, "Concurrent", null, null, url);
+                urlCheck.recordTimings(null, null, null, 100, 10, 1000, List.of());
+                saves.add(executor.submit(() -> {
+                    start.await();
+                    store.save(urlCheck);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> save : saves) {
+                save.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        byte[] histogram = (byte[]) DB.sqlQuery("select timing_histogram from url where id = :id")
+                .setParameter("id", url.getId())
+                .findOne()
+                .get("timing_histogram");
+        ByteBuffer buckets = ByteBuffer.wrap(histogram);
+        long total = 0;
+        while (buckets.hasRemaining()) {
+            total += buckets.getInt();
+        }
+        assertThat(total).isEqualTo(checks);
+    }
+}
@@ -0,0 +1,126 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlNormalizer;
+import hexlet.code.domain.query.QUrl;
+import hexlet.code.domain.query.QUrlCheck;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public final class CheckSweeperTest {
+
+    private static final List<MockWebServer> SERVERS = new ArrayList<>();
+
+    private static CheckerHttpClient httpClient;
+
+    @BeforeAll
+    static void beforeAll() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            MockWebServer server = new MockWebServer();
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+                    return new MockResponse()
+                            .setBody("<title>" + request.getHeader("Host") + "</title>")
+                            .setBodyDelay(50, TimeUnit.MILLISECONDS);
+                }
+            });
+            server.start();
+            SERVERS.add(server);
+        }
+        httpClient = new CheckerHttpClient(new CheckerHttpClient.Settings()
+                .connectTimeout(Duration.ofSeconds(2))
+                .totalTimeout(Duration.ofSeconds(5)));
+    }
+
+    @AfterAll
+    static void afterAll() throws IOException {
+        httpClient.shutdown();
+        for (MockWebServer server : SERVERS) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testSweepChecksEveryUrl() throws Exception {
+        // two urls on each of two hosts, so with one fetch per host the second url of a host has to wait
+        List<Url> urls = new ArrayList<>();
+        for (String host : List.of("localhost", "127.0.0.1")) {
+            for (MockWebServer server : SERVERS) {
+                String name = "http://" + host + ":" + server.getPort();
+                urls.add(new Url(name, UrlNormalizer.normalize(new URL(name))).insertOrGet());
+            }
+        }
+        CheckSweeper sweeper = new CheckSweeper(new UrlChecker(new CheckStore(id -> { }), httpClient), 4, 1, 2);
+
+        SweepReport report;
+        try {
+            report = sweeper.sweep();
+        } finally {
+            sweeper.shutdown();
+        }
+
+        assertThat(report.getUrls()).isGreaterThanOrEqualTo(urls.size());
+        assertThat(report.getChecked() + report.getFailed()).isEqualTo(report.getUrls());
+        for (Url url : urls) {
+            Url swept = new QUrl().id.equalTo(url.getId()).findOne();
+            assertThat(swept.getLastStatusCode()).isEqualTo(200);
+            assertThat(swept.getLastCheckAt()).isNotNull();
+            assertThat(new QUrlCheck().url.id.equalTo(url.getId()).findCount()).isEqualTo(1);
+        }
+        for (MockWebServer server : SERVERS) {
+            assertThat(server.getRequestCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void testFailedWriterStopsSweep() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody("<title>stop</title>").setBodyDelay(20, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start(InetAddress.getByName("0.0.0.0"), 0);
+        int urls = 20;
+        for (int i = 1; i <= urls; i++) {
+            String name = "http://127.0.0." + i + ":" + server.getPort();
+            new Url(name, UrlNormalizer.normalize(new URL(name))).insertOrGet();
+        }
+        // the first batch is saved and then fails, as a lost database connection would
+        CheckStore failingStore = new CheckStore(id -> {
+            throw new IllegalStateException("Database is gone");
+        });
+        CheckSweeper sweeper = new CheckSweeper(new UrlChecker(failingStore, httpClient), 2, 1, 2);
+
+        try {
+            assertThatThrownBy(sweeper::sweep)
+                    .isInstanceOf(ExecutionException.class)
+                    .hasMessageContaining("Database is gone");
+        } finally {
+            sweeper.shutdown();
+            server.shutdown();
+        }
+
+        // the fetches still running when the writer failed finished, and no others started
+        assertThat(server.getRequestCount()).isLessThan(urls / 2);
+    }
+}
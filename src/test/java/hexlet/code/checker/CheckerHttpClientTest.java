@@ -0,0 +1,152 @@
+package hexlet.code.checker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public final class CheckerHttpClientTest {
+
+    private MockWebServer server;
+
+    private CheckerHttpClient httpClient;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        httpClient = new CheckerHttpClient(new CheckerHttpClient.Settings()
+                .totalTimeout(Duration.ofSeconds(1))
+                .maxDrainBytes(16_384));
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        httpClient.shutdown();
+        server.shutdown();
+    }
+
+    /**
+     * Reads the first bytes of the body only, the way the extractor stops after the head.
+     */
+    private int getFirstBytes(String path) throws IOException {
+        return httpClient.get(server.url(path).toString(), Map.of(), new FetchTimings(),
+                (response, body) -> body.read(new byte[100]));
+    }
+
+    @Test
+    void testShortRestIsDrainedAndConnectionReused() throws Exception {
+        server.enqueue(new MockResponse().setBody("x".repeat(10_000)));
+        server.enqueue(new MockResponse().setBody("y"));
+
+        getFirstBytes("/first");
+        getFirstBytes("/second");
+
+        assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+        // the second request went over the same connection
+        assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(1);
+        assertThat(httpClient.getStats()).containsEntry("bodiesDrained", 2L);
+    }
+
+    @Test
+    void testLongRestClosesConnection() throws Exception {
+        server.enqueue(new MockResponse().setBody("x".repeat(1_000_000)));
+        server.enqueue(new MockResponse().setBody("y"));
+
+        getFirstBytes("/first");
+        getFirstBytes("/second");
+
+        assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+        assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+        assertThat(httpClient.getStats()).containsEntry("bodiesDropped", 1L);
+    }
+
+    @Test
+    void testFetchTimersPastMaxHostsShareOtherTag() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CheckerHttpClient client = new CheckerHttpClient(new CheckerHttpClient.Settings().maxTimedHosts(1));
+        client.bindTo(registry);
+        server.enqueue(new MockResponse().setBody("a"));
+        server.enqueue(new MockResponse().setBody("b"));
+        server.enqueue(new MockResponse().setBody("c"));
+        try {
+            for (String host : List.of("localhost", "127.0.0.1", "localhost")) {
+                client.get("http://" + host + ":" + server.getPort() + "/", Map.of(), new FetchTimings(),
+                        (response, body) -> body.readAllBytes());
+            }
+        } finally {
+            client.shutdown();
+        }
+
+        assertThat(registry.get("checker.fetch").tag("host", "localhost").timer().count()).isEqualTo(2);
+        assertThat(registry.get("checker.fetch").tag("host", "other").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testUntimedRequestsAreLeftOutOfFetchTimers() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        httpClient.bindTo(registry);
+        server.enqueue(new MockResponse().setBody("warm-up"));
+
+        httpClient.getUntimed(server.url("/").toString(), (response, body) -> body.readAllBytes());
+
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        assertThat(registry.find("checker.fetch").timers()).isEmpty();
+    }
+
+    @Test
+    void testDnsLookupsAreCached() throws IOException {
+        CachingDnsResolver resolver = new CachingDnsResolver(1, Duration.ofMinutes(1).toNanos());
+
+        resolver.resolve("localhost");
+        resolver.resolve("localhost");
+        resolver.resolve("127.0.0.1");
+        resolver.resolve("localhost");
+
+        // the second host pushed the first one out of the single entry
+        assertThat(resolver.getHits()).isEqualTo(1);
+        assertThat(resolver.getMisses()).isEqualTo(3);
+        assertThat(resolver.size()).isEqualTo(1);
+
+        CachingDnsResolver expiring = new CachingDnsResolver(10, 0);
+        expiring.resolve("localhost");
+        expiring.resolve("localhost");
+        assertThat(expiring.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    void testTotalTimeoutCoversHeadersAndBody() {
+        // neither the headers nor the body take a second, but both together do
+        server.enqueue(new MockResponse()
+                .setHeadersDelay(600, TimeUnit.MILLISECONDS)
+                .setBody("x".repeat(8_192))
+                .throttleBody(1_024, 100, TimeUnit.MILLISECONDS));
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> httpClient.get(server.url("/").toString(), Map.of(), new FetchTimings(),
+                (response, body) -> body.readAllBytes()))
+                .isInstanceOf(IOException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void testTotalTimeoutAbortsSlowHeaders() {
+        server.enqueue(new MockResponse().setHeadersDelay(5, TimeUnit.SECONDS).setBody("late"));
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> getFirstBytes("/"))
+                .isInstanceOf(IOException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(3));
+    }
+}
@@ -0,0 +1,124 @@
+package hexlet.code.checker;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class HtmlHeadExtractorTest {
+
+    @Test
+    void testExtractSite() throws IOException {
+        byte[] body = Files.readAllBytes(Path.of("src/test/resources/Site.html"));
+
+        ExtractedPage page = HtmlHeadExtractor.extract(new ByteArrayInputStream(body), "text/html");
+
+        assertThat(page.getTitle()).isEqualTo("Non-existent site");
+        assertThat(page.getH1()).isEqualTo("Welcome!");
+        assertThat(page.getDescription()).isEqualTo("Description");
+    }
+
+    @Test
+    void testExtractSkipsCommentsAndScripts() throws IOException {
+        String html = "<html><head><!-- <title>Comment</title> -->"
+                + "<script>var s = '<h1>Script</h1>';</script>"
+                + "<TITLE>  Fish &amp;\n Chips </TITLE>"
+                + "<meta content='Fresh &quot;fish&quot;' NAME=Description></head>"
+                + "<body><h1 class=\"x\">Hello <b>big</b>\n world</h1></body></html>";
+
+        ExtractedPage page = HtmlHeadExtractor.extract(
+                new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(page.getTitle()).isEqualTo("Fish & Chips");
+        assertThat(page.getH1()).isEqualTo("Hello big world");
+        assertThat(page.getDescription()).isEqualTo("Fresh \"fish\"");
+    }
+
+    @Test
+    void testExtractMissingFields() throws IOException {
+        ExtractedPage page = HtmlHeadExtractor.extract(
+                new ByteArrayInputStream("<p>No head".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(page.getTitle()).isEmpty();
+        assertThat(page.getH1()).isEmpty();
+        assertThat(page.getDescription()).isEmpty();
+    }
+
+    @Test
+    void testExtractUsesMetaCharset() throws IOException {
+        Charset cp1251 = Charset.forName("windows-1251");
+        String html = "<meta charset=\"windows-1251\"><title>Привет</title>";
+
+        ExtractedPage page = HtmlHeadExtractor.extract(new ByteArrayInputStream(html.getBytes(cp1251)), null);
+
+        assertThat(page.getTitle()).isEqualTo("Привет");
+    }
+
+    @Test
+    void testExtractStopsOnceAllFieldsAreFound() throws IOException {
+        String head = "<title>T</title><meta name=description content=D><h1>H</h1>";
+        AtomicLong filler = new AtomicLong();
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                filler.incrementAndGet();
+                return 'x';
+            }
+        };
+        InputStream body = new SequenceInputStream(
+                new ByteArrayInputStream(head.getBytes(StandardCharsets.UTF_8)), endless);
+
+        ExtractedPage page = HtmlHeadExtractor.extract(body, "text/html; charset=utf-8");
+
+        assertThat(filler.get()).isLessThan(64 * 1024);
+        assertThat(page.getTitle()).isEqualTo("T");
+        assertThat(page.getH1()).isEqualTo("H");
+        assertThat(page.getDescription()).isEqualTo("D");
+    }
+
+    private static InputStream endless(String head, AtomicLong filler) {
+        String paragraph = "<p>Lorem ipsum dolor sit amet</p>\n";
+        InputStream body = new InputStream() {
+            @Override
+            public int read() {
+                return paragraph.charAt((int) (filler.getAndIncrement() % paragraph.length()));
+            }
+        };
+        return new SequenceInputStream(new ByteArrayInputStream(head.getBytes(StandardCharsets.UTF_8)), body);
+    }
+
+    @Test
+    void testExtractStopsAfterHeadWithoutDescription() throws IOException {
+        AtomicLong filler = new AtomicLong();
+        String head = "<html><head><title>T</title></head><body><h1>H</h1>";
+
+        ExtractedPage page = HtmlHeadExtractor.extract(endless(head, filler), "text/html; charset=utf-8");
+
+        assertThat(filler.get()).isLessThan(16 * 1024);
+        assertThat(page.getTitle()).isEqualTo("T");
+        assertThat(page.getH1()).isEqualTo("H");
+        assertThat(page.getDescription()).isEmpty();
+    }
+
+    @Test
+    void testExtractGivesUpOnMissingH1() throws IOException {
+        AtomicLong filler = new AtomicLong();
+        String head = "<html><head><title>T</title><meta name=description content=D></head><body>";
+
+        ExtractedPage page = HtmlHeadExtractor.extract(endless(head, filler), "text/html; charset=utf-8");
+
+        assertThat(filler.get()).isLessThan(128 * 1024);
+        assertThat(page.getTitle()).isEqualTo("T");
+        assertThat(page.getH1()).isEmpty();
+        assertThat(page.getDescription()).isEqualTo("D");
+    }
+}
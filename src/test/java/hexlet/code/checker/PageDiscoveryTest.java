@@ -0,0 +1,82 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlNormalizer;
+import hexlet.code.domain.UrlPage;
+import hexlet.code.domain.query.QUrlPage;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class PageDiscoveryTest {
+
+    private MockWebServer server;
+
+    private CheckerHttpClient httpClient;
+
+    private PageDiscovery pageDiscovery;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        String origin = "http://localhost:" + server.getPort();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                switch (String.valueOf(request.getPath())) {
+                    case "/sitemap.xml":
+                        return new MockResponse().setBody("<urlset"
+                                + " xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"
+                                + "<url><loc>" + origin + "/about</loc></url>"
+                                + "</urlset>");
+                    case "/about":
+                        return new MockResponse().setBody("<title>About</title>");
+                    default:
+                        return new MockResponse().setResponseCode(404);
+                }
+            }
+        });
+        httpClient = new CheckerHttpClient(new CheckerHttpClient.Settings().totalTimeout(Duration.ofSeconds(5)));
+        PolitenessCache politeness = new PolitenessCache(httpClient, 10, Duration.ofMinutes(1), Duration.ZERO,
+                Duration.ZERO);
+        pageDiscovery = new PageDiscovery(new UrlChecker(new CheckStore(id -> { }), httpClient), httpClient,
+                politeness, 2, 10, 5);
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        pageDiscovery.shutdown();
+        httpClient.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    void testDiscoveryMatchesPagesAgainstOrigin() throws IOException, InterruptedException {
+        // the name keeps the case it was entered in, the sitemap uses the normalized host
+        String name = "http://LocalHost:" + server.getPort();
+        Url url = new Url(name, UrlNormalizer.normalize(new URL(name))).insertOrGet();
+
+        assertThat(pageDiscovery.submit(url)).isTrue();
+        for (int attempt = 0; attempt < 50 && pageDiscovery.isRunning(url.getId()); attempt++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(pageDiscovery.isRunning(url.getId())).isFalse();
+        List<UrlPage> pages = new QUrlPage().url.id.equalTo(url.getId()).findList();
+        assertThat(pages).extracting(UrlPage::getLocation).containsExactly(url.getOrigin() + "/about");
+        assertThat(pages.get(0).getStatusCode()).isEqualTo(200);
+        assertThat(pages.get(0).getTitle()).isEqualTo("About");
+    }
+}
@@ -0,0 +1,69 @@
+package hexlet.code.checker;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class RobotsRulesTest {
+
+    private static RobotsRules parse(String robots) throws IOException {
+        return RobotsRules.parse(new ByteArrayInputStream(robots.getBytes(StandardCharsets.UTF_8)), "page-analyzer");
+    }
+
+    @Test
+    void testNamedGroupWinsOverWildcard() throws IOException {
+        RobotsRules rules = parse("User-agent: *\n"
+                + "Disallow: /\n"
+                + "Crawl-delay: 10\n"
+                + "\n"
+                + "User-agent: Googlebot\n"
+                + "User-agent: Page-Analyzer/1.0\n"
+                + "Disallow: /admin # staff only\n"
+                + "Crawl-delay: 0.5\n"
+                + "\n"
+                + "Sitemap: https://example.com/sitemap.xml\n");
+
+        assertThat(rules.isAllowed("/")).isTrue();
+        assertThat(rules.isAllowed("/admin/users")).isFalse();
+        assertThat(rules.getCrawlDelay()).isEqualTo(Duration.ofMillis(500));
+        assertThat(rules.getSitemaps()).containsExactly("https://example.com/sitemap.xml");
+    }
+
+    @Test
+    void testWildcardGroupAndLongestMatch() throws IOException {
+        RobotsRules rules = parse("User-agent: other-bot\n"
+                + "Disallow:\n"
+                + "\n"
+                + "User-agent: *\n"
+                + "Disallow: /private\n"
+                + "Allow: /private/open\n"
+                + "Disallow: /*.pdf$\n"
+                + "Disallow: /search*q=\n");
+
+        assertThat(rules.isAllowed("/private/secret")).isFalse();
+        assertThat(rules.isAllowed("/private/open/page")).isTrue();
+        assertThat(rules.isAllowed("/docs/report.pdf")).isFalse();
+        assertThat(rules.isAllowed("/docs/report.pdf?download=1")).isTrue();
+        assertThat(rules.isAllowed("/search/all?q=fish")).isFalse();
+        assertThat(rules.isAllowed("/robots.txt")).isTrue();
+        assertThat(rules.getCrawlDelay()).isNull();
+    }
+
+    @Test
+    void testEmptyNamedGroupAllowsEverything() throws IOException {
+        RobotsRules rules = parse("User-agent: *\n"
+                + "Disallow: /\n"
+                + "\n"
+                + "User-agent: page-analyzer\n"
+                + "Disallow:\n");
+
+        assertThat(rules.isAllowed("/anything")).isTrue();
+        assertThat(RobotsRules.DISALLOW_ALL.isAllowed("/anything")).isFalse();
+        assertThat(RobotsRules.ALLOW_ALL.isAllowed("/anything")).isTrue();
+    }
+}
@@ -0,0 +1,211 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.QueuedCheck;
+import hexlet.code.domain.Url;
+import hexlet.code.domain.query.QQueuedCheck;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class SharedCheckQueueTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(1);
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    // nothing listens on port 1, so the check fails right away
+    private static final String REFUSING_URL = "http://127.0.0.1:1";
+
+    private MockWebServer server;
+
+    private CheckerHttpClient httpClient;
+
+    private CheckJobQueue checkJobQueue;
+
+    private SharedCheckQueue queue;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        new QQueuedCheck().delete();
+        server = new MockWebServer();
+        server.start();
+        httpClient = new CheckerHttpClient(new CheckerHttpClient.Settings().totalTimeout(Duration.ofSeconds(5)));
+    }
+
+    @AfterEach
+    void afterEach() throws Exception {
+        if (queue != null) {
+            queue.shutdown();
+        }
+        checkJobQueue.shutdown();
+        httpClient.shutdown();
+        server.shutdown();
+    }
+
+    private void startQueue(int perHostLimit, Duration lease, int maxAttempts) {
+        UrlChecker checker = new UrlChecker(new CheckStore(id -> { }), httpClient);
+        checkJobQueue = new CheckJobQueue(checker, 2, 10, perHostLimit, Duration.ofMinutes(1));
+        queue = new SharedCheckQueue(checkJobQueue, false, 10, lease, maxAttempts, RETRY_DELAY);
+    }
+
+    private QueuedCheck enqueue(String name) {
+        Url url = new Url(name, name).insertOrGet();
+        QueuedCheck job = new QueuedCheck(url, Instant.now().minusSeconds(1));
+        job.insert();
+        return job;
+    }
+
+    private static QueuedCheck reload(QueuedCheck job) {
+        return new QQueuedCheck().id.equalTo(job.getId()).findOne();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int attempt = 0; attempt < 100 && !condition.getAsBoolean(); attempt++) {
+            Thread.sleep(50);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    void testClaimLeasesAndDeletesDoneJob() throws InterruptedException {
+        startQueue(2, LEASE, 5);
+        server.enqueue(new MockResponse().setBody("<title>ok</title>").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        QueuedCheck job = enqueue(server.url("/claim").toString());
+        Instant claimedAt = Instant.now();
+
+        assertThat(queue.claim()).isEqualTo(1);
+
+        QueuedCheck claimed = reload(job);
+        assertThat(claimed.getLeaseOwner()).isNotNull();
+        assertThat(claimed.getAttempts()).isEqualTo(1);
+        assertThat(claimed.getAvailableAt()).isAfterOrEqualTo(claimedAt.plus(LEASE).minusSeconds(1));
+        // a leased job is not due, so a second claim finds nothing
+        assertThat(queue.claim()).isEqualTo(0);
+
+        await(() -> reload(job) == null);
+    }
+
+    @Test
+    void testExpiredLeaseIsClaimedAgain() throws InterruptedException {
+        startQueue(2, LEASE, 5);
+        server.enqueue(new MockResponse().setBody("<title>ok</title>"));
+        QueuedCheck job = enqueue(server.url("/expired").toString());
+        job.claim("crashed-node", Instant.now().minusSeconds(1));
+        job.update();
+
+        assertThat(queue.claim()).isEqualTo(1);
+
+        QueuedCheck claimed = reload(job);
+        assertThat(claimed.getLeaseOwner()).isNotEqualTo("crashed-node");
+        assertThat(claimed.getAttempts()).isEqualTo(2);
+        await(() -> reload(job) == null);
+    }
+
+    @Test
+    void testHeartbeatExtendsLeaseWhileCheckRuns() throws InterruptedException {
+        Duration lease = Duration.ofMillis(600);
+        startQueue(2, lease, 5);
+        server.enqueue(new MockResponse().setBody("<title>slow</title>").setHeadersDelay(1500, TimeUnit.MILLISECONDS));
+        QueuedCheck job = enqueue(server.url("/heartbeat").toString());
+        // polls far apart, so only the heartbeat runs during the test
+        queue.start(60_000);
+
+        assertThat(queue.claim()).isEqualTo(1);
+        Instant firstLease = reload(job).getAvailableAt();
+        Thread.sleep(900);
+
+        QueuedCheck running = reload(job);
+        assertThat(running).isNotNull();
+        assertThat(running.getAvailableAt()).isAfter(firstLease);
+        assertThat(running.getAvailableAt()).isAfter(Instant.now());
+        await(() -> reload(job) == null);
+    }
+
+    @Test
+    void testFailedCheckBacksOff() throws InterruptedException {
+        startQueue(2, LEASE, 5);
+        QueuedCheck job = enqueue(REFUSING_URL);
+        Instant failedAt = Instant.now();
+
+        assertThat(queue.claim()).isEqualTo(1);
+
+        await(() -> reload(job).getLeaseOwner() == null);
+        QueuedCheck released = reload(job);
+        assertThat(released.getAttempts()).isEqualTo(1);
+        assertThat(released.getLastError()).isNotBlank();
+        // the first retry waits the retry delay plus up to half of it as jitter
+        assertThat(released.getAvailableAt()).isAfterOrEqualTo(failedAt.plus(RETRY_DELAY));
+        assertThat(released.getAvailableAt()).isBefore(Instant.now().plus(RETRY_DELAY.multipliedBy(3).dividedBy(2))
+                .plusSeconds(1));
+    }
+
+    @Test
+    void testJobIsDroppedAfterMaxAttempts() throws InterruptedException {
+        startQueue(2, LEASE, 2);
+        QueuedCheck job = enqueue(REFUSING_URL);
+        job.claim("crashed-node", Instant.now().minusSeconds(1));
+        job.update();
+
+        // the second attempt is the last one
+        assertThat(queue.claim()).isEqualTo(1);
+
+        await(() -> reload(job) == null);
+    }
+
+    @Test
+    void testRejectedJobDoesNotUseAttempt() {
+        // no check may run for any host, so the local queue rejects every job
+        startQueue(0, LEASE, 5);
+        QueuedCheck job = enqueue(server.url("/rejected").toString());
+        Instant rejectedAt = Instant.now();
+
+        assertThat(queue.claim()).isEqualTo(0);
+
+        QueuedCheck released = reload(job);
+        assertThat(released.getLeaseOwner()).isNull();
+        assertThat(released.getAttempts()).isEqualTo(0);
+        assertThat(released.getAvailableAt()).isAfterOrEqualTo(rejectedAt.plus(RETRY_DELAY));
+        assertThat(released.getLastError()).contains("Too many checks");
+    }
+
+    @Test
+    void testDrainHandsInterruptedCheckBack() throws InterruptedException {
+        // the page takes longer than the drain timeout, and the read fails only after the interrupt
+        httpClient.shutdown();
+        httpClient = new CheckerHttpClient(new CheckerHttpClient.Settings()
+                .readTimeout(Duration.ofSeconds(1))
+                .totalTimeout(Duration.ofSeconds(5)));
+        startQueue(2, LEASE, 5);
+        server.enqueue(new MockResponse().setBody("<title>slow</title>").setHeadersDelay(10, TimeUnit.SECONDS));
+        QueuedCheck job = enqueue(server.url("/drain").toString());
+        long urlId = job.getUrl().getId();
+
+        assertThat(queue.claim()).isEqualTo(1);
+        assertThat(server.takeRequest(5, TimeUnit.SECONDS)).isNotNull();
+
+        queue.shutdown();
+        List<Long> unfinished = checkJobQueue.drain(Duration.ofMillis(100));
+        queue.requeue(unfinished);
+
+        assertThat(unfinished).containsExactly(urlId);
+        await(() -> checkJobQueue.getJob(urlId).getStatus() == CheckStatus.FAILED);
+        assertThat(checkJobQueue.getJob(urlId).isInterrupted()).isTrue();
+
+        QueuedCheck requeued = reload(job);
+        assertThat(requeued).isNotNull();
+        assertThat(requeued.getLeaseOwner()).isNull();
+        assertThat(requeued.getAttempts()).isEqualTo(0);
+        assertThat(requeued.getAvailableAt()).isBeforeOrEqualTo(Instant.now());
+    }
+}
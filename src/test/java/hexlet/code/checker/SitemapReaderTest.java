@@ -0,0 +1,89 @@
+package hexlet.code.checker;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class SitemapReaderTest {
+
+    private static final String URLSET = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"
+            + "<url><loc> https://example.com/ </loc><lastmod>2024-01-01</lastmod></url>"
+            + "<url><loc>https://example.com/about</loc></url>"
+            + "<url><loc>https://example.com/contacts</loc></url>"
+            + "</urlset>";
+
+    private static InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testUrlsetPassesPages() throws IOException, XMLStreamException {
+        List<String> sitemaps = new ArrayList<>();
+        List<String> pages = new ArrayList<>();
+
+        SitemapReader.read("https://example.com/sitemap.xml", stream(URLSET), sitemaps::add, pages::add);
+
+        assertThat(pages).containsExactly("https://example.com/", "https://example.com/about",
+                "https://example.com/contacts");
+        assertThat(sitemaps).isEmpty();
+    }
+
+    @Test
+    void testIndexPassesSitemaps() throws IOException, XMLStreamException {
+        List<String> sitemaps = new ArrayList<>();
+        List<String> pages = new ArrayList<>();
+
+        SitemapReader.read("https://example.com/sitemap_index.xml", stream("<?xml version=\"1.0\"?>"
+                + "<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"
+                + "<sitemap><loc>https://example.com/sitemap-posts.xml</loc><lastmod>2024-01-01</lastmod></sitemap>"
+                + "<sitemap><loc>https://example.com/sitemap-pages.xml.gz</loc></sitemap>"
+                + "</sitemapindex>"), sitemaps::add, pages::add);
+
+        assertThat(sitemaps).containsExactly("https://example.com/sitemap-posts.xml",
+                "https://example.com/sitemap-pages.xml.gz");
+        assertThat(pages).isEmpty();
+    }
+
+    @Test
+    void testGzippedSitemapIsUnpacked() throws IOException, XMLStreamException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(URLSET.getBytes(StandardCharsets.UTF_8));
+        }
+        List<String> pages = new ArrayList<>();
+
+        SitemapReader.read("https://example.com/sitemap.xml.gz", new ByteArrayInputStream(gzipped.toByteArray()),
+                sitemap -> { }, pages::add);
+
+        assertThat(pages).hasSize(3).contains("https://example.com/about");
+    }
+
+    @Test
+    void testReadingStopsOnceEnoughPages() throws IOException, XMLStreamException {
+        // whatever follows the second page is never parsed, not even the broken markup
+        String xml = "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"
+                + "<url><loc>https://example.com/first</loc></url>"
+                + "<url><loc>https://example.com/second</loc></url>"
+                + "<url><loc>https://example.com/third</loc></url>"
+                + "<url><loc>broken</wrong>";
+        List<String> pages = new ArrayList<>();
+
+        SitemapReader.read("https://example.com/sitemap.xml", stream(xml), sitemap -> { }, location -> {
+            pages.add(location);
+            return pages.size() < 2;
+        });
+
+        assertThat(pages).containsExactly("https://example.com/first", "https://example.com/second");
+    }
+}
@@ -0,0 +1,54 @@
+package hexlet.code.checker;
+
+import hexlet.code.domain.Url;
+import hexlet.code.domain.UrlCheck;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class UrlCheckerTest {
+
+    private MockWebServer server;
+
+    private CheckerHttpClient httpClient;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        httpClient = new CheckerHttpClient(new CheckerHttpClient.Settings().totalTimeout(Duration.ofSeconds(30)));
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        httpClient.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    void testReadWithoutValidatorsStopsAfterHead() {
+        // a megabyte of body at 64 KiB per second: reading it to the end would take 16 seconds
+        String head = "<html><head><title>Slow</title><meta name=\"description\" content=\"Big page\"></head>";
+        server.enqueue(new MockResponse()
+                .setBody(head + "<body><h1>Hello</h1>" + "<p>filler</p>".repeat(80_000) + "</body></html>")
+                .throttleBody(64 * 1024, 1, TimeUnit.SECONDS));
+        String name = server.url("/").toString();
+        Url url = new Url(name, name);
+
+        long started = System.nanoTime();
+        UrlCheck urlCheck = new UrlChecker(new CheckStore(id -> { }), httpClient).fetch(url);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+        assertThat(urlCheck.getTitle()).isEqualTo("Slow");
+        assertThat(urlCheck.getH1()).isEqualTo("Hello");
+        assertThat(urlCheck.getDescription()).isEqualTo("Big page");
+    }
+}
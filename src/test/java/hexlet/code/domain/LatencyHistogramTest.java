@@ -0,0 +1,77 @@
+package hexlet.code.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class LatencyHistogramTest {
+
+    private static long total(byte[] histogram) {
+        ByteBuffer buckets = ByteBuffer.wrap(histogram);
+        long total = 0;
+        while (buckets.hasRemaining()) {
+            total += buckets.getInt();
+        }
+        return total;
+    }
+
+    @Test
+    void testEmptyHistogramHasNoPercentiles() {
+        assertThat(LatencyHistogram.percentile(null, 0.5)).isNull();
+        assertThat(LatencyHistogram.percentile(new byte[LatencyHistogram.BYTES], 0.5)).isNull();
+    }
+
+    @Test
+    void testPercentileIsUpperBoundOfItsBucket() {
+        for (int millis : new int[] {2, 10, 100, 777, 1000, 30_000}) {
+            Integer percentile = LatencyHistogram.percentile(LatencyHistogram.record(null, millis), 0.5);
+            assertThat(percentile).isBetween(millis, (int) Math.ceil(millis * 1.19));
+        }
+        assertThat(LatencyHistogram.percentile(LatencyHistogram.record(null, 0), 0.5)).isEqualTo(1);
+        assertThat(LatencyHistogram.percentile(LatencyHistogram.record(null, 1), 0.5)).isEqualTo(1);
+    }
+
+    @Test
+    void testVerySlowTimesShareTheLastBucket() {
+        Integer minute = LatencyHistogram.percentile(LatencyHistogram.record(null, 60_000), 0.5);
+        Integer hour = LatencyHistogram.percentile(LatencyHistogram.record(null, 3_600_000), 0.5);
+
+        assertThat(minute).isEqualTo(hour).isBetween(55_000, 56_000);
+    }
+
+    @Test
+    void testPercentilesRankTheRecordedTimes() {
+        byte[] histogram = null;
+        for (int i = 0; i < 90; i++) {
+            histogram = LatencyHistogram.record(histogram, 10);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram = LatencyHistogram.record(histogram, 1000);
+        }
+
+        assertThat(total(histogram)).isEqualTo(100);
+        assertThat(LatencyHistogram.percentile(histogram, 0.5)).isBetween(10, 12);
+        assertThat(LatencyHistogram.percentile(histogram, 0.9)).isBetween(10, 12);
+        assertThat(LatencyHistogram.percentile(histogram, 0.95)).isBetween(1000, 1190);
+        assertThat(LatencyHistogram.percentile(histogram, 1.0)).isBetween(1000, 1190);
+    }
+
+    @Test
+    void testCountsAreHalvedAtTheLimit() {
+        byte[] histogram = null;
+        for (int i = 0; i < 1000; i++) {
+            histogram = LatencyHistogram.record(histogram, 1000);
+        }
+        assertThat(total(histogram)).isEqualTo(1000);
+
+        // older counts are halved whenever the limit is reached, so recent fast checks soon outweigh them
+        for (int i = 0; i < 501; i++) {
+            histogram = LatencyHistogram.record(histogram, 10);
+        }
+
+        assertThat(total(histogram)).isLessThanOrEqualTo(1000);
+        assertThat(LatencyHistogram.percentile(histogram, 0.5)).isBetween(10, 12);
+    }
+}
@@ -0,0 +1,75 @@
+package hexlet.code.domain;
+
+import hexlet.code.domain.query.QUrl;
+import hexlet.code.domain.query.QUrlCheck;
+import hexlet.code.domain.query.QUrlCheckSummary;
+import io.ebean.DB;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class OriginBackfillTest {
+
+    private static long insertWithoutOrigin(String name) {
+        DB.sqlUpdate("insert into url (name, created_at) values (:name, current_timestamp)")
+                .setParameter("name", name)
+                .execute();
+        return new QUrl().name.equalTo(name).findOne().getId();
+    }
+
+    @Test
+    void testBackfillNormalizesAndMerges() {
+        Url taken = new Url("https://xn--caf-dma.example", "https://xn--caf-dma.example").insertOrGet();
+        long unique = insertWithoutOrigin("https://Bücher.Example:443/");
+        long duplicate = insertWithoutOrigin("https://café.example/");
+        UrlCheck check = new UrlCheck(200, "Café au lait", null, null, DB.reference(Url.class, duplicate));
+        check.getContent().save();
+        check.save();
+
+        assertThat(OriginBackfill.run()).isEqualTo(2);
+
+        Url backfilled = new QUrl().id.equalTo(unique).findOne();
+        assertThat(backfilled.getOrigin()).isEqualTo("https://xn--bcher-kva.example");
+        assertThat(backfilled.getHost()).isEqualTo("xn--bcher-kva.example");
+        assertThat(new QUrl().id.equalTo(duplicate).exists()).isFalse();
+        assertThat(new QUrlCheck().url.id.equalTo(taken.getId()).findCount()).isEqualTo(1);
+        assertThat(new QUrl().origin.isNull().exists()).isFalse();
+    }
+
+    @Test
+    void testMergeKeepsSummaries() {
+        Url taken = new Url("https://xn--smrrebrd-64af.example", "https://xn--smrrebrd-64af.example").insertOrGet();
+        long duplicate = insertWithoutOrigin("https://smørrebrød.example/");
+        LocalDate sharedDay = LocalDate.of(2024, 3, 1);
+        LocalDate ownDay = LocalDate.of(2024, 3, 2);
+        UrlCheckSummary kept = new UrlCheckSummary(taken, sharedDay);
+        kept.add(200, "Open");
+        kept.save();
+        UrlCheckSummary merged = new UrlCheckSummary(DB.reference(Url.class, duplicate), sharedDay);
+        merged.add(500, "Down");
+        merged.add(200, "Open");
+        merged.save();
+        UrlCheckSummary moved = new UrlCheckSummary(DB.reference(Url.class, duplicate), ownDay);
+        moved.add(404, "Gone");
+        moved.save();
+
+        OriginBackfill.run();
+
+        List<UrlCheckSummary> summaries = new QUrlCheckSummary()
+                .url.id.equalTo(taken.getId())
+                .orderBy()
+                .checkDate.asc()
+                .findList();
+        assertThat(summaries).extracting(UrlCheckSummary::getCheckDate).containsExactly(sharedDay, ownDay);
+        assertThat(summaries.get(0).getCheckCount()).isEqualTo(3);
+        assertThat(summaries.get(0).getStatus2xx()).isEqualTo(2);
+        assertThat(summaries.get(0).getStatus5xx()).isEqualTo(1);
+        assertThat(summaries.get(0).getFirstTitle()).isEqualTo("Open");
+        assertThat(summaries.get(1).getCheckCount()).isEqualTo(1);
+        assertThat(summaries.get(1).getStatus4xx()).isEqualTo(1);
+        assertThat(new QUrlCheckSummary().url.id.equalTo(duplicate).exists()).isFalse();
+    }
+}
@@ -1,3 +1,9 @@
-INSERT INTO url (name, created_at) VALUES
-  ('https://www.oreilly.com/', '2022-01-01 13:57:40'),
-  ('https://www.amazon.com/', '2022-01-01 13:57:41');
\ No newline at end of file
+MERGE INTO url (name, origin, host, created_at) KEY (origin) VALUES
+  ('https://www.oreilly.com/', 'https://www.oreilly.com', 'oreilly.com', '2022-01-01 13:57:40'),
+  ('https://www.amazon.com/', 'https://www.amazon.com', 'amazon.com', '2022-01-01 13:57:41');
+
+-- the full-text index of migration 1.9, which the generated test schema does not have
+CREATE ALIAS IF NOT EXISTS FT_INIT FOR "org.h2.fulltext.FullText.init";
+CALL FT_INIT();
+CALL FT_DROP_INDEX('PUBLIC', 'CHECK_CONTENT');
+CALL FT_CREATE_INDEX('PUBLIC', 'CHECK_CONTENT', 'TITLE,H1,DESCRIPTION');
\ No newline at end of file